@@ -0,0 +1,23 @@
+#!/bin/sh
+# Compiles the game and the JMH benchmarks, then runs them.
+# Results are written as JSON to bench/results/jmh-result.json.
+#
+# Usage: bench/run.sh [benchmark regex] [result file]
+# Needs JDK 21 and the JMH jars in the local Maven repository
+# (override the location with MAVEN_REPOSITORY).
+set -e
+cd "$(dirname "$0")/.."
+
+M2="${MAVEN_REPOSITORY:-$HOME/.m2/repository}"
+JMH_VERSION=1.37
+LIBS="$M2/org/openjdk/jmh/jmh-core/$JMH_VERSION/jmh-core-$JMH_VERSION.jar"
+LIBS="$LIBS:$M2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+LIBS="$LIBS:$M2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+PROCESSOR="$M2/org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION/jmh-generator-annprocess-$JMH_VERSION.jar:$LIBS"
+
+OUT=out/bench
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -d "$OUT" $(ls src/*.java | grep -v 'Tests\.java$')
+javac -cp "$OUT:$LIBS" -processorpath "$PROCESSOR" -d "$OUT" bench/src/benchmarks/*.java
+java -cp "$OUT:$LIBS" benchmarks.BenchmarkRunner "$@"
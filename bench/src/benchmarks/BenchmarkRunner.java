@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks and writes the results as JSON.
+ *
+ * Usage: java benchmarks.BenchmarkRunner [benchmark regex] [result file]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmarks\\..*Benchmark";
+        String result = args.length > 1 ? args[1] : "bench/results/jmh-result.json";
+        File parent = new File(result).getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
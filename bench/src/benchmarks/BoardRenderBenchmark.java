@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.JComponent;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks updating and painting the board panel into an off-screen image.
+ * Runs headless, so it measures painting without a display. The glyph atlas is
+ * built for each size in the first call, so the measured frames only copy images.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BoardRenderBenchmark {
+
+    @Param({"540", "1080"})
+    public int size;
+
+    private JComponent panel;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setup() throws Throwable {
+        panel = (JComponent) Game.NEW_BOARD_PANEL.invoke(Game.NEW_GAME_LOG.invoke());
+        panel.setSize(size, size);
+        image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawBoard() throws Throwable {
+        Game.REDRAW.invoke(panel);
+        panel.validate();
+        panel.paint(graphics);
+        return image;
+    }
+}
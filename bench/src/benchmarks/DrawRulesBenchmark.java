@@ -0,0 +1,38 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks repetition bookkeeping in DrawRules, by Zobrist key as the game
+ * does after every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class DrawRulesBenchmark {
+
+    private long key;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Throwable {
+        Game.RESET_DRAW_RULES.invoke();
+        Object position = Game.FROM_FEN.invoke("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        key = (long) Game.GET_KEY.invoke(position);
+        Game.RECORD_POSITION.invoke(key);
+    }
+
+    @Benchmark
+    public void recordPosition() throws Throwable {
+        Game.RECORD_POSITION.invoke(key);
+    }
+
+    @Benchmark
+    public boolean isThreefoldRepetition() throws Throwable {
+        return (boolean) Game.IS_THREEFOLD_REPETITION.invoke(key);
+    }
+}
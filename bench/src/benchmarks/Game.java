@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Set;
+
+/**
+ * Method handles to the game classes.
+ * The game sources live in the default package, which JMH cannot generate
+ * benchmarks for and which cannot be imported, so the benchmarks reach them
+ * through handles resolved once at class load.
+ */
+final class Game {
+
+    static final MethodHandle NEW_SPECIAL_MOVES;
+    static final MethodHandle GET_LEGAL_MOVES;
+    static final MethodHandle IS_KING_IN_CHECK;
+    static final MethodHandle HAS_NO_LEGAL_MOVES;
+
+    static final MethodHandle RECORD_POSITION;
+    static final MethodHandle IS_THREEFOLD_REPETITION;
+    static final MethodHandle RESET_DRAW_RULES;
+
+    static final MethodHandle NEW_GAME_LOG;
+    static final MethodHandle NOTATION_PREVIEW;
+
+    static final MethodHandle NEW_BOARD_PANEL;
+    static final MethodHandle REDRAW;
+
+    static final MethodHandle FROM_FEN;
+    static final MethodHandle GET_KEY;
+    static final MethodHandle NEW_SEARCH;
+    static final MethodHandle SET_THREADS;
+    static final MethodHandle SEARCH;
+    static final MethodHandle RESULT_NODES;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> specialMoves = Class.forName("SpecialMoves");
+            Class<?> drawRules = Class.forName("DrawRules");
+            Class<?> gameLog = Class.forName("GameLog");
+            Class<?> boardPanel = Class.forName("ChessBoardPanel");
+            Class<?> position = Class.forName("Position");
+            Class<?> search = Class.forName("Search");
+            Class<?> searchResult = Class.forName("Search$Result");
+
+            NEW_SPECIAL_MOVES = lookup.findConstructor(specialMoves,
+                    MethodType.methodType(void.class, String[][].class, boolean.class, int.class, int.class));
+            GET_LEGAL_MOVES = lookup.findVirtual(specialMoves, "getLegalMoves",
+                    MethodType.methodType(Set.class, int.class, int.class));
+            IS_KING_IN_CHECK = lookup.findVirtual(specialMoves, "isKingInCheck",
+                    MethodType.methodType(boolean.class, boolean.class));
+            HAS_NO_LEGAL_MOVES = lookup.findVirtual(specialMoves, "hasNoLegalMoves",
+                    MethodType.methodType(boolean.class, boolean.class));
+
+            RECORD_POSITION = lookup.findStatic(drawRules, "recordPosition",
+                    MethodType.methodType(void.class, long.class));
+            IS_THREEFOLD_REPETITION = lookup.findStatic(drawRules, "isThreefoldRepetition",
+                    MethodType.methodType(boolean.class, long.class));
+            RESET_DRAW_RULES = lookup.findStatic(drawRules, "reset", MethodType.methodType(void.class));
+
+            NEW_GAME_LOG = lookup.findConstructor(gameLog, MethodType.methodType(void.class));
+            NOTATION_PREVIEW = lookup.findVirtual(gameLog, "getLastNotationPreview",
+                    MethodType.methodType(String.class, int.class, int.class, int.class, int.class,
+                            String.class, String.class, boolean.class));
+
+            NEW_BOARD_PANEL = lookup.findConstructor(boardPanel, MethodType.methodType(void.class, gameLog));
+            REDRAW = lookup.findVirtual(boardPanel, "redraw", MethodType.methodType(void.class));
+
+            FROM_FEN = lookup.findStatic(position, "fromFen", MethodType.methodType(position, String.class));
+            GET_KEY = lookup.findVirtual(position, "getKey", MethodType.methodType(long.class));
+            NEW_SEARCH = lookup.findConstructor(search, MethodType.methodType(void.class, position));
+            SET_THREADS = lookup.findVirtual(search, "setThreads", MethodType.methodType(void.class, int.class));
+            SEARCH = lookup.findVirtual(search, "search", MethodType.methodType(searchResult, int.class, long.class));
+            RESULT_NODES = lookup.findVirtual(searchResult, "getNodes", MethodType.methodType(long.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Game() {
+    }
+
+    /**
+     * Builds the String[][] board used by the game from the piece placement of a FEN.
+     */
+    static String[][] boardFromFen(String fen) {
+        String[][] board = new String[8][8];
+        String placement = fen.split(" ")[0];
+        int r = 0, c = 0;
+        for (char ch : placement.toCharArray()) {
+            if (ch == '/') {
+                r++;
+                c = 0;
+            } else if (Character.isDigit(ch)) {
+                c += ch - '0';
+            } else {
+                board[r][c++] = String.valueOf(ch);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the algebraic notation of a move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class GameLogBenchmark {
+
+    private Object gameLog;
+
+    @Setup
+    public void setup() throws Throwable {
+        gameLog = Game.NEW_GAME_LOG.invoke();
+    }
+
+    /**
+     * Notation of Bxf7+ from c4, capturing a pawn and giving check.
+     */
+    @Benchmark
+    public String buildNotation() throws Throwable {
+        return (String) Game.NOTATION_PREVIEW.invoke(gameLog, 4, 2, 1, 5, "B", "p", true);
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rules queries of SpecialMoves on opening, middlegame and endgame positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RulesBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private String[][] board;
+    private Object rules;
+
+    @Setup
+    public void setup() throws Throwable {
+        String fen = switch (phase) {
+            case "opening" -> "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+            case "middlegame" -> "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            default -> "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+        };
+        board = Game.boardFromFen(fen);
+        rules = Game.NEW_SPECIAL_MOVES.invoke(board, true, -1, -1);
+    }
+
+    /**
+     * Legal moves of every white piece, as the UI requests them one square at a time.
+     */
+    @Benchmark
+    public void getLegalMoves(Blackhole bh) throws Throwable {
+        for (int r = 0; r < 8; r++)
+            for (int c = 0; c < 8; c++)
+                if (board[r][c] != null)
+                    bh.consume(Game.GET_LEGAL_MOVES.invoke(rules, r, c));
+    }
+
+    /**
+     * Builds the rules object from the board, as every UI query does today.
+     */
+    @Benchmark
+    public Object construct() throws Throwable {
+        return Game.NEW_SPECIAL_MOVES.invoke(board, true, -1, -1);
+    }
+
+    @Benchmark
+    public boolean isKingInCheck() throws Throwable {
+        return (boolean) Game.IS_KING_IN_CHECK.invoke(rules, true);
+    }
+
+    @Benchmark
+    public boolean hasNoLegalMoves() throws Throwable {
+        return (boolean) Game.HAS_NO_LEGAL_MOVES.invoke(rules, true);
+    }
+}
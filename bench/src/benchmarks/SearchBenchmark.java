@@ -0,0 +1,53 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a fixed-depth search of the computer opponent.
+ * The reported time is the time to depth. With one thread the search is
+ * deterministic, so the node count per call is constant and nodes per second is
+ * nodes divided by the reported time; with more threads the time to depth
+ * should fall as cores are added.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SearchBenchmark {
+
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"6"})
+    public int depth;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private Object position;
+
+    @Setup
+    public void setup() throws Throwable {
+        String fen = switch (phase) {
+            case "opening" -> "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+            case "middlegame" -> "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            default -> "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+        };
+        position = Game.FROM_FEN.invoke(fen);
+    }
+
+    /**
+     * Searches to the fixed depth and returns the node count.
+     */
+    @Benchmark
+    public long search() throws Throwable {
+        Object search = Game.NEW_SEARCH.invoke(position);
+        Game.SET_THREADS.invoke(search, threads);
+        Object result = Game.SEARCH.invoke(search, depth, 0L);
+        return (long) Game.RESULT_NODES.invoke(result);
+    }
+}
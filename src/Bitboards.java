@@ -0,0 +1,269 @@
+/**
+ * Precomputed attack tables for the bitboard rules engine.
+ * Squares are numbered row * 8 + col, so square 0 is a8 and square 63 is h1,
+ * matching the row/column layout of the String[][] boards used by the UI.
+ */
+public final class Bitboards {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;
+    public static final long RANK_1 = 0xFFL << 56;
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    /** Pawn capture squares indexed by [colour][square]. */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /** Squares strictly between two aligned squares, indexed by [from][to]; 0 if not aligned. */
+    public static final long[][] BETWEEN = new long[64][64];
+    /** Whole line through two aligned squares, edge to edge, indexed by [from][to]; 0 if not aligned. */
+    public static final long[][] LINE = new long[64][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        initLeaperTables();
+        // Fixed seed so the magic numbers (and table layout) are identical on every run.
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int sq = 0; sq < 64; sq++) {
+            seed = initMagic(sq, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE, seed);
+            seed = initMagic(sq, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE, seed);
+        }
+        initLineTables();
+    }
+
+    private Bitboards() {
+    }
+
+    /**
+     * Returns the square index for the given row and column.
+     */
+    public static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    /**
+     * Returns the board row of a square.
+     */
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Returns the board column of a square.
+     */
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Returns the algebraic name of a square, e.g. "e4".
+     */
+    public static String squareName(int square) {
+        return "" + (char) ('a' + col(square)) + (8 - row(square));
+    }
+
+    /**
+     * Returns a bitboard with only the given square set.
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Returns rook attacks from the square for the given occupancy.
+     */
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[square][index];
+    }
+
+    /**
+     * Returns bishop attacks from the square for the given occupancy.
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[square][index];
+    }
+
+    /**
+     * Returns queen attacks from the square for the given occupancy.
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Returns the squares attacked by a piece of the given type and colour.
+     */
+    public static long attacks(int type, int colour, int square, long occupied) {
+        return switch (type) {
+            case PAWN -> PAWN_ATTACKS[colour][square];
+            case KNIGHT -> KNIGHT_ATTACKS[square];
+            case BISHOP -> bishopAttacks(square, occupied);
+            case ROOK -> rookAttacks(square, occupied);
+            case QUEEN -> queenAttacks(square, occupied);
+            default -> KING_ATTACKS[square];
+        };
+    }
+
+    /**
+     * Fills the knight, king and pawn attack tables.
+     */
+    private static void initLeaperTables() {
+        int[][] knightSteps = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+        for (int sq = 0; sq < 64; sq++) {
+            int r = row(sq);
+            int c = col(sq);
+            for (int[] s : knightSteps)
+                KNIGHT_ATTACKS[sq] |= bitIfOnBoard(r + s[0], c + s[1]);
+            for (int dr = -1; dr <= 1; dr++)
+                for (int dc = -1; dc <= 1; dc++)
+                    if (dr != 0 || dc != 0)
+                        KING_ATTACKS[sq] |= bitIfOnBoard(r + dr, c + dc);
+            // White pawns move towards row 0, black pawns towards row 7.
+            PAWN_ATTACKS[WHITE][sq] = bitIfOnBoard(r - 1, c - 1) | bitIfOnBoard(r - 1, c + 1);
+            PAWN_ATTACKS[BLACK][sq] = bitIfOnBoard(r + 1, c - 1) | bitIfOnBoard(r + 1, c + 1);
+        }
+    }
+
+    /**
+     * Fills the between and line tables from the empty-board slider attacks.
+     */
+    private static void initLineTables() {
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                long ends = bit(a) | bit(b);
+                if ((rookAttacks(a, 0L) & bit(b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = rookAttacks(a, bit(b)) & rookAttacks(b, bit(a));
+                } else if ((bishopAttacks(a, 0L) & bit(b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = bishopAttacks(a, bit(b)) & bishopAttacks(b, bit(a));
+                }
+            }
+        }
+    }
+
+    private static long bitIfOnBoard(int r, int c) {
+        return r >= 0 && r < 8 && c >= 0 && c < 8 ? bit(square(r, c)) : 0L;
+    }
+
+    /**
+     * Walks the rays from a square, stopping at the first occupied square.
+     */
+    private static long slowSlidingAttacks(int sq, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] d : directions) {
+            int r = row(sq) + d[0];
+            int c = col(sq) + d[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long b = bit(square(r, c));
+                attacks |= b;
+                if ((occupied & b) != 0) break;
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * Returns the relevant occupancy mask: the rays without their last square.
+     */
+    private static long relevantMask(int sq, int[][] directions) {
+        long mask = 0L;
+        for (int[] d : directions) {
+            int r = row(sq) + d[0];
+            int c = col(sq) + d[1];
+            while (r + d[0] >= 0 && r + d[0] < 8 && c + d[1] >= 0 && c + d[1] < 8) {
+                mask |= bit(square(r, c));
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Searches a magic multiplier for one square and fills its attack table.
+     * @return the updated random seed
+     */
+    private static long initMagic(int sq, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                  long[][] tables, long seed) {
+        long mask = relevantMask(sq, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+
+        // Enumerate every subset of the mask (Carry-Rippler trick).
+        long subset = 0L;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slowSlidingAttacks(sq, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        long[] table = new long[size];
+        int[] epoch = new int[size];
+        int attempt = 0;
+        while (true) {
+            seed = xorShift(seed);
+            long a = seed;
+            seed = xorShift(seed);
+            long b = seed;
+            seed = xorShift(seed);
+            long magic = a & b & seed;
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) continue;
+
+            attempt++;
+            boolean ok = true;
+            for (int i = 0; i < size && ok; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (epoch[index] < attempt) {
+                    epoch[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    ok = false;
+                }
+            }
+            if (ok) {
+                masks[sq] = mask;
+                magics[sq] = magic;
+                shifts[sq] = 64 - bits;
+                tables[sq] = table;
+                return seed;
+            }
+        }
+    }
+
+    private static long xorShift(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+}
@@ -2,28 +2,50 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Panel representing the graphical chessboard.
+ * The board, its coordinates and the pieces are painted by this one component and
+ * scale with it; the pieces are copied from a {@link GlyphAtlas}.
  */
 public class ChessBoardPanel extends JPanel {
 
     private final int rows = 9;
     private final int cols = 9;
+    private static final int DEFAULT_SQUARE_SIZE = 60;
+    private static final int HIGHLIGHT_WIDTH = 3;
+    private static final Color LEGAL_MOVE_COLOR = new Color(50, 200, 50, 128);
     private final Color lightColor = new Color(240, 217, 181);
     private final Color darkColor = new Color(181, 136, 99);
 
     private String[][] board = new String[8][8];
-    private Set<Point> legalMoves = new HashSet<>();
+    private final GlyphAtlas atlas = new GlyphAtlas();
+    // What is on screen for each square (row * 8 + col), to repaint only squares that change
+    private final String[] shownPieces = new String[64];
+    private final boolean[] shownLegalMoves = new boolean[64];
+    private final Color[] shownHighlights = new Color[64];
+    // Pieces shown instead of the board's while a move is animated
+    private final String[] overridePieces = new String[64];
+    private long overriddenSquares;
+    private Font coordFont;
+    private final GameService service = new GameService();
+    private PositionSnapshot snapshot;
+    // Target squares of the selected piece, bit row * 8 + col
+    private long legalMoves;
     private int selectedRow = -1;
     private int selectedCol = -1;
+    // Square clicked while the snapshot was being worked out; handled when it arrives
+    private Point pendingClick;
     private boolean whiteToMove = true;
-    private int enPassantRow = -1;
-    private int enPassantCol = -1;
+    private boolean gameOver = false;
     private GameLog gameLog;
     private Color boardOverlay = null;
+    private Color shownOverlay = null;
+    private ComputerPlayer computer;
+    private final List<GameListener> listeners = new ArrayList<>();
 
     /**
      * Constructor for ChessBoardPanel.
@@ -31,11 +53,63 @@ public class ChessBoardPanel extends JPanel {
      */
     public ChessBoardPanel(GameLog gameLog) {
         this.gameLog = gameLog;
-        setLayout(new GridLayout(rows, cols));
+        setPreferredSize(new Dimension(cols * DEFAULT_SQUARE_SIZE, rows * DEFAULT_SQUARE_SIZE));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int size = squareSize();
+                int x = e.getX() - boardX(), y = e.getY() - boardY();
+                if (x < 0 || y < 0) return;
+                int row = y / size, col = x / size;
+                if (row < 8 && col < 8) handleClick(row, col);
+            }
+        });
         initBoard();
+        // The board is the first subscriber, so its highlights are set before anyone else reacts.
+        addGameListener(this::onGameEvent);
         drawBoard();
     }
 
+    /**
+     * Subscribes to the events of this game.
+     * @param listener listener called on the event thread
+     */
+    public void addGameListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeGameListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Passes an event to every listener, in the order they were added.
+     * @param event the event
+     */
+    void fireGameEvent(GameEvent event) {
+        for (GameListener listener : new ArrayList<>(listeners)) listener.onGameEvent(event);
+    }
+
+    /**
+     * Updates the move and check highlights.
+     */
+    private void onGameEvent(GameEvent event) {
+        if (event instanceof GameEvent.MoveMade m) {
+            int move = m.position().getLastMove();
+            MoveAnimations.saveLastMove(Bitboards.row(Move.from(move)), Bitboards.col(Move.from(move)),
+                    Bitboards.row(Move.to(move)), Bitboards.col(Move.to(move)));
+            MoveAnimations.clearCheckHighlight();
+        } else if (event instanceof GameEvent.CheckGiven c) {
+            MoveAnimations.setCheckHighlight(c.king(), c.checker());
+            drawBoard();
+        } else if (event instanceof GameEvent.Undone || event instanceof GameEvent.Redone
+                || event instanceof GameEvent.JumpedTo) {
+            MoveAnimations.clearLastMove();
+            MoveAnimations.clearCheckHighlight();
+            drawBoard();
+        }
+    }
+
     /**
      * Initializes the board with starting positions of all pieces.
      */
@@ -66,95 +140,183 @@ public class ChessBoardPanel extends JPanel {
         board[7][5] = "B";
         board[7][6] = "N";
         board[7][7] = "R";
+        // The starting position is needed at once (the controller records its key),
+        // so it is the one snapshot taken on the calling thread.
+        snapshot = PositionSnapshot.of(Position.fromBoard(board, true, -1, -1));
+    }
+
+    /**
+     * Takes a new snapshot in the background after the position was replaced from
+     * outside (undo/redo). Clicks wait until it arrives; a newer rebuild
+     * or move cancels an older one. Fires {@link GameEvent.CheckGiven} if the side
+     * to move turns out to be in check.
+     * @param position the new position; not changed afterwards
+     */
+    private void refreshSnapshot(Position position) {
+        service.submitLatest(() -> PositionSnapshot.of(position), s -> {
+            snapshot = s;
+            boardOverlay = s.isInCheck() ? Color.RED : null;
+            if (s.isInCheck()) fireGameEvent(new GameEvent.CheckGiven(s.isWhiteToMove(), s.getCheckedKing(), s.getChecker()));
+            drawBoard();
+            requestComputerMove();
+            handlePendingClick();
+        });
+    }
+
+    /**
+     * Returns the latest published snapshot of the position.
+     * @return the current snapshot
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns true if the side to move is in check.
+     * Read from the snapshot, so it never runs the rules engine.
+     * @return true if in check
+     */
+    public boolean isSideToMoveInCheck() {
+        return snapshot.isInCheck();
+    }
+
+    /**
+     * Returns the side of a square; the board and its coordinates take 9×9 squares.
+     */
+    private int squareSize() {
+        return Math.max(1, Math.min(getWidth() / cols, getHeight() / rows));
     }
 
     /**
-     * Creates a coordinate label for row or column.
-     * @param text label text
-     * @return JLabel for coordinate
+     * Returns the left edge of square a8, to the right of the rank numbers.
      */
-    private JLabel createCoordLabel(String text) {
-        JLabel label = new JLabel(text, SwingConstants.CENTER);
-        label.setFont(new Font("SansSerif", Font.BOLD, 14));
-        return label;
+    private int boardX() {
+        return (getWidth() - cols * squareSize()) / 2 + squareSize();
     }
 
     /**
-     * Draws the chessboard including pieces and highlights.
+     * Returns the top edge of square a8.
+     */
+    private int boardY() {
+        return (getHeight() - rows * squareSize()) / 2;
+    }
+
+    /**
+     * Returns the bounds of a square in this component's coordinates.
+     * @param row board row, 0 = rank 8
+     * @param col board column, 0 = file a
+     * @return the square's bounds
+     */
+    public Rectangle getSquareBounds(int row, int col) {
+        int size = squareSize();
+        return new Rectangle(boardX() + col * size, boardY() + row * size, size, size);
+    }
+
+    /**
+     * Shows the given piece on a square instead of the board's, e.g. the captured
+     * piece while the capturing one is still moving. Takes effect on the next redraw.
+     * @param row board row
+     * @param col board column
+     * @param piece piece code, or null to show the square empty
+     */
+    public void overridePiece(int row, int col, String piece) {
+        int square = row * 8 + col;
+        overridePieces[square] = piece;
+        overriddenSquares |= 1L << square;
+    }
+
+    /**
+     * Shows the board's own pieces again on all overridden squares.
+     */
+    public void clearPieceOverrides() {
+        if (overriddenSquares == 0) return;
+        overriddenSquares = 0;
+        drawBoard();
+    }
+
+    /**
+     * Brings the screen up to date with the pieces and highlights.
+     * Only squares whose content changed are repainted.
      */
     private void drawBoard() {
-        removeAll();
-
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                if (row == 8 && col == 0) {
-                    add(new JLabel(""));
-                } else if (row == 8) {
-                    char label = (char) ('a' + col - 1);
-                    add(createCoordLabel(String.valueOf(label)));
-                } else if (col == 0) {
-                    int label = 8 - row;
-                    add(createCoordLabel(String.valueOf(label)));
-                } else {
-                    int boardRow = row;
-                    int boardCol = col - 1;
-
-                    SquarePanel square = new SquarePanel(boardRow, boardCol, this);
-                    boolean isLight = (boardRow + boardCol) % 2 == 0;
-                    square.setBackground(isLight ? lightColor : darkColor);
-
-                    String piece = board[boardRow][boardCol];
-                    JLabel pieceLabel = new JLabel(pieceToUnicode(piece), SwingConstants.CENTER);
-                    pieceLabel.setFont(new Font("SansSerif", Font.PLAIN, 32));
-                    square.add(pieceLabel);
-
-                    square.setLegalMove(legalMoves.contains(new Point(boardRow, boardCol)));
-
-                    if (MoveAnimations.isLastMoveSquare(boardRow, boardCol))
-                        square.setBorder(BorderFactory.createLineBorder(Color.YELLOW, 3));
-                    if (MoveAnimations.isCheckHighlight(boardRow, boardCol))
-                        square.setBorder(BorderFactory.createLineBorder(Color.RED, 3));
-
-                    square.addMouseListener(new MouseAdapter() {
-                        @Override
-                        public void mouseClicked(MouseEvent e) {
-                            handleClick(boardRow, boardCol);
-                        }
-                    });
-
-                    add(square);
+        int size = squareSize();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int square = row * 8 + col;
+                String piece = (overriddenSquares >>> square & 1) != 0 ? overridePieces[square] : board[row][col];
+                boolean legal = (legalMoves >>> square & 1) != 0;
+                Color highlight = null;
+                if (MoveAnimations.isLastMoveSquare(row, col)) highlight = Color.YELLOW;
+                if (MoveAnimations.isCheckHighlight(row, col)) highlight = Color.RED;
+
+                if (!Objects.equals(piece, shownPieces[square]) || legal != shownLegalMoves[square]
+                        || !Objects.equals(highlight, shownHighlights[square])) {
+                    shownPieces[square] = piece;
+                    shownLegalMoves[square] = legal;
+                    shownHighlights[square] = highlight;
+                    repaint(boardX() + col * size, boardY() + row * size, size, size);
                 }
             }
         }
-        if (boardOverlay != null) setBackground(boardOverlay);
-        else setBackground(null);
+        if (!Objects.equals(shownOverlay, boardOverlay)) {
+            shownOverlay = boardOverlay;
+            setBackground(boardOverlay);
+            repaint();
+        }
+    }
 
-        revalidate();
-        repaint();
+    /**
+     * Paints the coordinates and the squares within the clip.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        int size = squareSize();
+        int left = boardX(), top = boardY();
+        paintCoordinates(g2, size, left, top);
+
+        Rectangle clip = g2.getClipBounds();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int x = left + col * size, y = top + row * size;
+                if (clip != null && !clip.intersects(x, y, size, size)) continue;
+                int square = row * 8 + col;
+                g2.setColor((row + col) % 2 == 0 ? lightColor : darkColor);
+                g2.fillRect(x, y, size, size);
+                if (shownPieces[square] != null) atlas.draw(g2, shownPieces[square], x, y, size);
+                if (shownHighlights[square] != null) {
+                    g2.setColor(shownHighlights[square]);
+                    for (int i = 0; i < HIGHLIGHT_WIDTH; i++)
+                        g2.drawRect(x + i, y + i, size - 2 * i - 1, size - 2 * i - 1);
+                }
+                if (shownLegalMoves[square]) {
+                    g2.setColor(LEGAL_MOVE_COLOR);
+                    int diameter = size / 3;
+                    g2.fillOval(x + (size - diameter) / 2, y + (size - diameter) / 2, diameter, diameter);
+                }
+            }
+        }
     }
 
     /**
-     * Returns the corresponding Unicode symbol for a piece.
-     * @param piece piece code
-     * @return Unicode symbol
-     */
-    private String pieceToUnicode(String piece) {
-        if (piece == null) return "";
-        return switch (piece) {
-            case "K" -> "♔";
-            case "Q" -> "♕";
-            case "R" -> "♖";
-            case "B" -> "♗";
-            case "N" -> "♘";
-            case "P" -> "♙";
-            case "k" -> "♚";
-            case "q" -> "♛";
-            case "r" -> "♜";
-            case "b" -> "♝";
-            case "n" -> "♞";
-            case "p" -> "♟";
-            default -> "";
-        };
+     * Paints the rank numbers left of the board and the file letters below it.
+     */
+    private void paintCoordinates(Graphics2D g2, int size, int left, int top) {
+        float fontSize = size * 14f / DEFAULT_SQUARE_SIZE;
+        if (coordFont == null || coordFont.getSize2D() != fontSize)
+            coordFont = new Font("SansSerif", Font.BOLD, 14).deriveFont(fontSize);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(coordFont);
+        g2.setColor(getForeground());
+        FontMetrics fm = g2.getFontMetrics();
+        int baseline = (size - fm.getHeight()) / 2 + fm.getAscent();
+        for (int i = 0; i < 8; i++) {
+            String rank = String.valueOf(8 - i);
+            g2.drawString(rank, left - size + (size - fm.stringWidth(rank)) / 2, top + i * size + baseline);
+            String file = String.valueOf((char) ('a' + i));
+            g2.drawString(file, left + i * size + (size - fm.stringWidth(file)) / 2, top + 8 * size + baseline);
+        }
     }
 
     /**
@@ -163,6 +325,14 @@ public class ChessBoardPanel extends JPanel {
      * @param col clicked column
      */
     private void handleClick(int row, int col) {
+        if (gameOver) return;
+        // The position after the last move or undo is still being worked out, and
+        // the click needs its legal moves: keep the click, replacing an older one.
+        if (service.isBusy()) {
+            pendingClick = new Point(row, col);
+            return;
+        }
+        if (isComputerToMove()) return;
         String piece = board[row][col];
         if (selectedRow == -1) {
             if (piece != null && isWhite(piece) == whiteToMove) {
@@ -171,203 +341,221 @@ public class ChessBoardPanel extends JPanel {
                 legalMoves = calculateLegalMoves(row, col);
             }
         } else {
-            Point target = new Point(row, col);
-            if (legalMoves.contains(target)) {
-                if (tryMakeMove(selectedRow, selectedCol, row, col)) {
-                    whiteToMove = !whiteToMove;
-                    checkEndGame();
-                } else {
-                    JOptionPane.showMessageDialog(this, "Illegal move, king would be in check!");
-                }
-            }
+            if ((legalMoves >>> Bitboards.square(row, col) & 1) != 0)
+                playMove(selectedRow, selectedCol, row, col);
             selectedRow = -1;
             selectedCol = -1;
-            legalMoves.clear();
+            legalMoves = 0;
         }
         drawBoard();
     }
 
     /**
-     * Checks if a piece is white.
-     * @param piece piece code
-     * @return true if white, false otherwise
+     * Handles the click kept while the snapshot was being worked out, if any.
      */
-    private boolean isWhite(String piece) {
-        if (piece == null) return false;
-        return piece.equals(piece.toUpperCase());
+    private void handlePendingClick() {
+        Point click = pendingClick;
+        pendingClick = null;
+        if (click != null) handleClick(click.x, click.y);
     }
 
     /**
-     * Tries to make a move, checking for legality.
-     * @return true if move is legal
+     * Sets the computer opponent, or null for a game between two people.
+     * @param computer the computer player
      */
-    private boolean tryMakeMove(int fromRow, int fromCol, int toRow, int toCol) {
-        String movingPiece = board[fromRow][fromCol];
-
-        String[][] boardCopy = SpecialMoves.copyBoard(board);
-        int enPassantRowCopy = enPassantRow;
-        int enPassantColCopy = enPassantCol;
-
-        if (movingPiece.equalsIgnoreCase("p")) {
-            if (toRow == enPassantRowCopy && toCol == enPassantColCopy) {
-                if (movingPiece.equals("P"))
-                    boardCopy[toRow + 1][toCol] = null;
-                else
-                    boardCopy[toRow - 1][toCol] = null;
-            }
-        }
-
-        if (movingPiece.equals("P") && fromRow == 6 && toRow == 4) {
-            enPassantRowCopy = 5;
-            enPassantColCopy = fromCol;
-        } else if (movingPiece.equals("p") && fromRow == 1 && toRow == 3) {
-            enPassantRowCopy = 2;
-            enPassantColCopy = fromCol;
-        } else {
-            enPassantRowCopy = -1;
-            enPassantColCopy = -1;
-        }
-
-        boardCopy[toRow][toCol] = movingPiece;
-        boardCopy[fromRow][fromCol] = null;
-
-        SpecialMoves special = new SpecialMoves(boardCopy, whiteToMove, enPassantRowCopy, enPassantColCopy);
-        if (special.isKingInCheck(whiteToMove)) return false;
-
-        makeMove(fromRow, fromCol, toRow, toCol);
+    public void setComputer(ComputerPlayer computer) {
+        this.computer = computer;
+    }
 
-        if (movingPiece.equals("P") && toRow == 0) promotePawn(toRow, toCol, true);
-        else if (movingPiece.equals("p") && toRow == 7) promotePawn(toRow, toCol, false);
+    public ComputerPlayer getComputer() {
+        return computer;
+    }
 
-        return true;
+    /**
+     * Returns true if it is the computer's turn.
+     * @return true if the computer moves next
+     */
+    public boolean isComputerToMove() {
+        return computer != null && computer.isWhite() == whiteToMove;
     }
 
     /**
-     * Makes a move on the board and updates state.
+     * Lets the computer search for a move if it is its turn and it is not already thinking.
+     * The move is played when the search finishes, unless the position changed meanwhile.
      */
-    private void makeMove(int fromRow, int fromCol, int toRow, int toCol) {
-        String movingPiece = board[fromRow][fromCol];
-        String capturedPiece = board[toRow][toCol];
+    public void requestComputerMove() {
+        if (gameOver || service.isBusy() || !isComputerToMove() || computer.isThinking()) return;
+        long key = snapshot.getKey();
+        computer.think(snapshot.toPosition(), move -> playComputerMove(key, move));
+    }
 
-        if (movingPiece.equalsIgnoreCase("p") && toRow == enPassantRow && toCol == enPassantCol) {
-            if (movingPiece.equals("P")) {
-                capturedPiece = board[toRow + 1][toCol];
-                board[toRow + 1][toCol] = null;
-            } else {
-                capturedPiece = board[toRow - 1][toCol];
-                board[toRow - 1][toCol] = null;
-            }
-        }
+    /**
+     * Plays the move found by the computer.
+     * @param key key of the position the move was searched in
+     * @param move the packed move
+     */
+    private void playComputerMove(long key, int move) {
+        if (move == 0 || gameOver || service.isBusy() || !isComputerToMove() || snapshot.getKey() != key) return;
+        makeMove(move);
+    }
 
-        if (movingPiece.equals("P") && fromRow == 6 && toRow == 4) {
-            enPassantRow = 5;
-            enPassantCol = fromCol;
-        } else if (movingPiece.equals("p") && fromRow == 1 && toRow == 3) {
-            enPassantRow = 2;
-            enPassantCol = fromCol;
-        } else {
-            enPassantRow = -1;
-            enPassantCol = -1;
-        }
+    /**
+     * Checks if a piece is white.
+     * @param piece piece code
+     * @return true if white, false otherwise
+     */
+    private boolean isWhite(String piece) {
+        if (piece == null) return false;
+        return piece.equals(piece.toUpperCase());
+    }
 
-        board[toRow][toCol] = movingPiece;
-        board[fromRow][fromCol] = null;
+    /**
+     * Plays the move between two squares, one of the selected piece's legal targets,
+     * asking for the piece when a pawn promotes.
+     */
+    private void playMove(int fromRow, int fromCol, int toRow, int toCol) {
+        int from = Bitboards.square(fromRow, fromCol);
+        int to = Bitboards.square(toRow, toCol);
+        int promotion = snapshot.isPromotion(from, to) ? choosePromotion() : Bitboards.QUEEN;
+        int move = snapshot.findMove(from, to, promotion);
+        if (move != 0) makeMove(move);
+    }
 
-        GameController.getInstance().saveState();
-        if (gameLog != null && GameController.getInstance().isLoggingEnabled()) {
-            String notation = gameLog.getLastNotationPreview(fromRow, fromCol, toRow, toCol, movingPiece, capturedPiece, board, whiteToMove);
-            GameController.getInstance().saveNotation(notation);
-            gameLog.registerMove(fromRow, fromCol, toRow, toCol, movingPiece, capturedPiece, board, whiteToMove);
-        }
-        MoveAnimations.saveLastMove(fromRow, fromCol, toRow, toCol);
-        SpecialMoves sm = new SpecialMoves(board, whiteToMove, enPassantRow, enPassantCol);
-        if (sm.isKingInCheck(!whiteToMove)) {
-            Point k = sm.findKingPublic(!whiteToMove), a = sm.findAttackerTo(k, whiteToMove);
-            MoveAnimations.setCheckHighlight(k, a);
-        } else MoveAnimations.clearCheckHighlight();
-        boolean pawn = movingPiece.equalsIgnoreCase("p");
-        boolean captured = capturedPiece != null;
-        DrawRules.updateHalfmoveClock(pawn, captured);
-        DrawRules.recordPosition(board, whiteToMove);
+    /**
+     * Plays a legal move. The next position, its legal moves and the check state
+     * are worked out in the background; the board updates when they arrive.
+     * @param move packed legal move
+     */
+    private void makeMove(int move) {
+        PositionSnapshot before = snapshot;
+        service.submitLatest(() -> PositionSnapshot.afterMove(before, move), this::applyMove);
+    }
 
+    /**
+     * Shows a played move: updates the board from the snapshot taken after it,
+     * tells the listeners (history and draw counters, log, highlights, status),
+     * then checks for the end of the game.
+     * @param next snapshot after the move
+     */
+    private void applyMove(PositionSnapshot next) {
+        int move = next.getLastMove();
+        int fromRow = Bitboards.row(Move.from(move)), fromCol = Bitboards.col(Move.from(move));
+        int toRow = Bitboards.row(Move.to(move)), toCol = Bitboards.col(Move.to(move));
+        String movingPiece = next.getMovedPiece();
+        String capturedPiece = next.getCapturedPiece();
+        boolean check = next.isInCheck();
+
+        snapshot = next;
+        next.copyBoardTo(board);
+
+        String notation = GameLog.buildNotation(fromRow, fromCol, toRow, toCol, movingPiece, capturedPiece, check);
+        boolean whiteMoved = whiteToMove;
+        whiteToMove = !whiteToMove;
+        fireGameEvent(new GameEvent.MoveMade(next, whiteMoved, notation));
+        if (check) fireGameEvent(new GameEvent.CheckGiven(whiteToMove, next.getCheckedKing(), next.getChecker()));
+        if (!checkEndGame()) requestComputerMove();
+        drawBoard();
+        handlePendingClick();
     }
 
     /**
-     * Promotes a pawn to the selected piece.
+     * Asks which piece a pawn promotes to.
+     * @return the chosen piece type
      */
-    private void promotePawn(int row, int col, boolean white) {
+    private int choosePromotion() {
         String[] options = {"Queen", "Rook", "Bishop", "Knight"};
         String choice = (String) JOptionPane.showInputDialog(this, "Promote pawn to:", "Pawn Promotion",
                 JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
         if (choice == null) choice = "Queen";
-        String promotedPiece = switch (choice) {
-            case "Queen" -> white ? "Q" : "q";
-            case "Rook" -> white ? "R" : "r";
-            case "Bishop" -> white ? "B" : "b";
-            case "Knight" -> white ? "N" : "n";
-            default -> white ? "Q" : "q";
+        return switch (choice) {
+            case "Rook" -> Bitboards.ROOK;
+            case "Bishop" -> Bitboards.BISHOP;
+            case "Knight" -> Bitboards.KNIGHT;
+            default -> Bitboards.QUEEN;
         };
-        board[row][col] = promotedPiece;
     }
 
     /**
      * Calculates legal moves for the selected piece.
-     * @return set of legal move points
+     * @return bitboard of the target squares
      */
-    private Set<Point> calculateLegalMoves(int row, int col) {
+    private long calculateLegalMoves(int row, int col) {
         String piece = board[row][col];
-        if (piece == null) return new HashSet<>();
-        SpecialMoves special = new SpecialMoves(board, whiteToMove, enPassantRow, enPassantCol);
-        return special.getLegalMoves(row, col);
+        if (piece == null) return 0;
+        return snapshot.legalTargets(row, col);
     }
 
     /**
      * Checks if the game has ended by checkmate, stalemate or draw.
+     * Decided from the snapshot; the game is saved in the background.
+     * @return true if the game is over
      */
-    private void checkEndGame() {
-        SpecialMoves special = new SpecialMoves(board, whiteToMove, enPassantRow, enPassantCol);
-        boolean isCheck = special.isKingInCheck(whiteToMove);
-        boolean noMoves = special.hasNoLegalMoves(whiteToMove);
-        if ((isCheck || !isCheck) && noMoves) {
+    private boolean checkEndGame() {
+        boolean isCheck = snapshot.isInCheck();
+        boolean noMoves = !snapshot.hasLegalMoves();
+        if (noMoves) {
             String result = isCheck ? (whiteToMove ? "Black wins" : "White wins") : "Draw";
             boardOverlay = isCheck ? Color.GREEN : Color.BLUE;
-            Timer.stopStatic();
-            SaveGame.saveToHistory(result, gameLog);
-            JOptionPane.showMessageDialog(this, result);
-            SaveGame.showStatsAfterGame();
-            SwingUtilities.getWindowAncestor(this).dispose();
-            MainMenu.show();
+            finishGame(result, result);
+            return true;
         } else if (isCheck) {
             boardOverlay = Color.RED;
         } else {
             boardOverlay = null;
         }
-        if (DrawRules.isThreefoldRepetition(board, whiteToMove) || DrawRules.isFiftyMoveRuleDraw()) {
+        if (DrawRules.isThreefoldRepetition(getPositionKey()) || DrawRules.isFiftyMoveRuleDraw()) {
 
             boardOverlay = Color.BLUE;
-            Timer.stopStatic();
-            SaveGame.saveToHistory("Draw", gameLog);
-            JOptionPane.showMessageDialog(this, "Draw: repetition or 50 moves.");
-            SaveGame.showStatsAfterGame();
-            SwingUtilities.getWindowAncestor(this).dispose();
-            MainMenu.show();
+            finishGame("Draw", "Draw: repetition or 50 moves.");
+            return true;
         }
+        return false;
+    }
+
+    /**
+     * Ends the game: stops the computer and fires {@link GameEvent.GameEnded}, on
+     * which the clock stops and the game is saved to the history.
+     * @param result result written to the history, e.g. "White wins" or "Draw"
+     * @param message message shown to the players
+     */
+    public void finishGame(String result, String message) {
+        if (gameOver) return;
+        gameOver = true;
+        if (computer != null) computer.cancel();
+        service.cancel();
+        fireGameEvent(new GameEvent.GameEnded(result, message));
     }
 
     public String[][] getBoard() {
         return board;
     }
 
-    public void setBoard(String[][] newBoard) {
-        this.board = newBoard;
+    /**
+     * Returns the Zobrist key of the current position.
+     * @return position key
+     */
+    public long getPositionKey() {
+        return snapshot.getKey();
     }
 
-    public void redraw() {
-        drawBoard();
+    /**
+     * Shows a position from the game history, e.g. on undo/redo, and takes a new
+     * snapshot of it in the background. Castling rights and the en passant square
+     * come with the position.
+     * @param position the position; must not be changed afterwards
+     */
+    public void setPosition(Position position) {
+        position.copyToBoard(board);
+        whiteToMove = position.isWhiteToMove();
+        selectedRow = -1;
+        selectedCol = -1;
+        legalMoves = 0;
+        pendingClick = null; // Made on the position shown before
+        refreshSnapshot(position);
     }
 
-    public void switchPlayer() {
-        whiteToMove = !whiteToMove;
+    public void redraw() {
+        drawBoard();
     }
 
     public GameLog getGameLog() {
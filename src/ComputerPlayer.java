@@ -0,0 +1,88 @@
+import javax.swing.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Plays one side of the game with the {@link Search} engine.
+ * The search runs on a worker thread so the board stays responsive; the chosen
+ * move is handed back on the Swing event thread. All moves of a game share one
+ * transposition table, so each search starts from what the previous ones learned.
+ */
+public class ComputerPlayer {
+
+    /** Thinking time per move in milliseconds. */
+    public static final long DEFAULT_TIME_MILLIS = 1000;
+    /** Search threads: one per available core. */
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final boolean white;
+    private final long timeMillis;
+    private final int threads;
+    private Search search;
+    private Search.Result lastResult;
+
+    /**
+     * Creates a computer player.
+     * @param white true if the computer plays White
+     * @param timeMillis thinking time per move in milliseconds
+     * @param threads number of search threads
+     */
+    public ComputerPlayer(boolean white, long timeMillis, int threads) {
+        this.white = white;
+        this.timeMillis = timeMillis;
+        this.threads = threads;
+    }
+
+    public boolean isWhite() {
+        return white;
+    }
+
+    /**
+     * Returns true while a search is running.
+     */
+    public boolean isThinking() {
+        return search != null;
+    }
+
+    /**
+     * Returns the result of the last finished search, or null before the first move.
+     * Its nodes per second, summed over all search threads, is the engine's speed on this machine.
+     */
+    public Search.Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Starts searching a copy of the position on a worker thread.
+     * Must be called on the event thread.
+     * @param position position to move in; not touched by the worker
+     * @param onMove receives the chosen move on the event thread; not called if cancelled
+     */
+    public void think(Position position, IntConsumer onMove) {
+        cancel();
+        Search s = new Search(position.copy(), TranspositionTable.getInstance());
+        s.setThreads(threads);
+        search = s;
+        Thread worker = new Thread(() -> {
+            Search.Result result = s.search(Search.MAX_PLY, timeMillis);
+            SwingUtilities.invokeLater(() -> {
+                if (search != s) return; // Cancelled or superseded
+                search = null;
+                lastResult = result;
+                onMove.accept(result.getMove());
+            });
+        }, "computer-search");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the running search, if any, and drops its move.
+     * Must be called on the event thread.
+     */
+    public void cancel() {
+        if (search != null) {
+            search.stop();
+            search = null;
+        }
+    }
+}
@@ -1,9 +1,26 @@
-import java.util.*;
-
 public class DrawRules {
-    private static final Map<String, Integer> repetitionMap = new HashMap<>();
+    private static final LongIntMap repetitionMap = new LongIntMap();
     private static int halfmoveClock = 0;
 
+    /**
+     * Records a position by its Zobrist key.
+     * The key already covers side to move, castling rights and en passant.
+     *
+     * @param key  Zobrist key of the position
+     */
+    public static void recordPosition(long key) {
+        repetitionMap.add(key, 1);
+    }
+
+    /**
+     * Forgets one occurrence of a position, e.g. when the move leading to it is undone.
+     *
+     * @param key  Zobrist key of the position
+     */
+    public static void removePosition(long key) {
+        repetitionMap.add(key, -1);
+    }
+
     /**
      * Records a board position including the player to move.
      * This is important for correct threefold repetition detection.
@@ -12,8 +29,17 @@ public class DrawRules {
      * @param whiteToMove  true if it's white's turn, false otherwise
      */
     public static void recordPosition(String[][] board, boolean whiteToMove) {
-        String key = Arrays.deepToString(board) + (whiteToMove ? "W" : "B");
-        repetitionMap.put(key, repetitionMap.getOrDefault(key, 0) + 1);
+        recordPosition(keyOf(board, whiteToMove));
+    }
+
+    /**
+     * Checks if the position with the given Zobrist key has occurred three times.
+     *
+     * @param key  Zobrist key of the position
+     * @return true if the same position has occurred three times
+     */
+    public static boolean isThreefoldRepetition(long key) {
+        return repetitionMap.get(key) >= 3;
     }
 
     /**
@@ -24,8 +50,14 @@ public class DrawRules {
      * @return true if the same position has occurred three times
      */
     public static boolean isThreefoldRepetition(String[][] board, boolean whiteToMove) {
-        String key = Arrays.deepToString(board) + (whiteToMove ? "W" : "B");
-        return repetitionMap.getOrDefault(key, 0) >= 3;
+        return isThreefoldRepetition(keyOf(board, whiteToMove));
+    }
+
+    /**
+     * Returns the Zobrist key of a board given in the UI format.
+     */
+    private static long keyOf(String[][] board, boolean whiteToMove) {
+        return Position.fromBoard(board, whiteToMove, -1, -1).getKey();
     }
 
     /**
@@ -37,14 +69,19 @@ public class DrawRules {
     }
 
     /**
-     * Updates the halfmove clock based on the type of move played.
+     * Sets the halfmove clock, e.g. to the value restored by an undo.
      *
-     * @param pawnMoved  true if a pawn was moved
-     * @param captured   true if a piece was captured
+     * @param halfmoves  plies since the last capture or pawn move
+     */
+    public static void setHalfmoveClock(int halfmoves) {
+        halfmoveClock = halfmoves;
+    }
+
+    /**
+     * Returns the plies since the last capture or pawn move.
      */
-    public static void updateHalfmoveClock(boolean pawnMoved, boolean captured) {
-        if (pawnMoved || captured) halfmoveClock = 0;
-        else halfmoveClock++;
+    public static int getHalfmoveClock() {
+        return halfmoveClock;
     }
 
     /**
@@ -55,4 +92,4 @@ public class DrawRules {
     public static boolean isFiftyMoveRuleDraw() {
         return halfmoveClock >= 100;
     }
-}
\ No newline at end of file
+}
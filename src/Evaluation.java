@@ -0,0 +1,118 @@
+/**
+ * Static evaluation for the search: material plus piece-square tables.
+ * Tables are written from White's side with a8 first, which matches the square
+ * numbering of {@link Bitboards}; Black reads them mirrored vertically.
+ */
+public final class Evaluation {
+
+    /** Piece values in centipawns, indexed by piece type. The king is never traded. */
+    public static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    private static final int[] PAWN_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0};
+
+    private static final int[] KNIGHT_TABLE = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50};
+
+    private static final int[] BISHOP_TABLE = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20};
+
+    private static final int[] ROOK_TABLE = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0};
+
+    private static final int[] QUEEN_TABLE = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20};
+
+    private static final int[] KING_MIDDLEGAME_TABLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20};
+
+    private static final int[] KING_ENDGAME_TABLE = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50};
+
+    private static final int[][] TABLES = {PAWN_TABLE, KNIGHT_TABLE, BISHOP_TABLE, ROOK_TABLE, QUEEN_TABLE};
+
+    /** Non-pawn material (both sides) below which the king table switches to the endgame one. */
+    private static final int ENDGAME_MATERIAL = 2 * (VALUES[Bitboards.ROOK] + VALUES[Bitboards.BISHOP]);
+
+    private Evaluation() {
+    }
+
+    /**
+     * Evaluates the position from the point of view of the side to move.
+     * @param position position to evaluate
+     * @return score in centipawns, positive if the side to move is better
+     */
+    public static int evaluate(Position position) {
+        int score = 0;
+        int material = 0;
+        for (int colour = Bitboards.WHITE; colour <= Bitboards.BLACK; colour++) {
+            int sign = colour == Bitboards.WHITE ? 1 : -1;
+            int flip = colour == Bitboards.WHITE ? 0 : 56;
+            for (int type = Bitboards.PAWN; type < Bitboards.KING; type++) {
+                long b = position.bitboard(Position.piece(colour, type));
+                if (type != Bitboards.PAWN) material += Long.bitCount(b) * VALUES[type];
+                int[] table = TABLES[type];
+                while (b != 0) {
+                    int sq = Long.numberOfTrailingZeros(b);
+                    b &= b - 1;
+                    score += sign * (VALUES[type] + table[sq ^ flip]);
+                }
+            }
+        }
+        int[] kingTable = material <= ENDGAME_MATERIAL ? KING_ENDGAME_TABLE : KING_MIDDLEGAME_TABLE;
+        int whiteKing = position.kingSquare(true);
+        int blackKing = position.kingSquare(false);
+        if (whiteKing >= 0) score += kingTable[whiteKing];
+        if (blackKing >= 0) score -= kingTable[blackKing ^ 56];
+        return position.isWhiteToMove() ? score : -score;
+    }
+}
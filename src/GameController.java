@@ -1,31 +1,50 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Controls the overall flow of the chess game, including move history,
  * undo/redo functionality, and notation logging.
+ * <p>
+ * The history is the list of moves played, not boards: the game position is kept
+ * up to date move by move, and its undo stack holds what each move needs to be
+ * taken back (captured piece, castling rights, en passant square, halfmove clock).
+ * Undo and redo each play or take back one move, and memory grows by a few words
+ * per move.
+ * <p>
+ * To jump to any move, a copy of the position is kept every
+ * {@value #CHECKPOINT_INTERVAL} plies; a jump starts from the nearest one at or
+ * before the target and replays at most that many moves.
  */
 public class GameController {
+    /** Plies between two stored positions used for seeking. */
+    public static final int CHECKPOINT_INTERVAL = 16;
+
     private static GameController instance;
 
     private final ChessBoardPanel board;
-    private final GameLog gameLog;
-    private final List<String[][]> history = new ArrayList<>();
-    private int historyIndex = -1;
-    private boolean loggingEnabled = true;
+    private Position position;
+    private int[] moves = new int[64];
+    private long[] keys = new long[65]; // keys[i] is the key after i plies
+    private final List<Position> checkpoints = new ArrayList<>(); // Position after i * CHECKPOINT_INTERVAL plies
+    private int moveCount;
+    private int historyIndex;
 
     private final List<String> moveNotations = new ArrayList<>(); // To store move notations
 
     /**
-     * Constructs the GameController and saves the initial board state.
+     * Constructs the GameController and records the initial position.
      *
      * @param board the chessboard panel
      */
     public GameController(ChessBoardPanel board) {
         this.board = board;
-        this.gameLog = board.getGameLog(); // Access to the game log
-        saveState(); // Initial state
+        this.position = board.getSnapshot().toPosition();
+        keys[0] = position.getKey();
+        checkpoints.add(position.copyWithoutHistory());
+        DrawRules.recordPosition(keys[0]); // Initial state
         instance = this;
+        board.addGameListener(this::onGameEvent);
     }
 
     /**
@@ -38,118 +57,128 @@ public class GameController {
     }
 
     /**
-     * Indicates whether move logging is enabled.
-     *
-     * @return true if logging is enabled
+     * Records each move made on the board in the history. Moves that were undone
+     * can no longer be redone after a new move.
      */
-    public boolean isLoggingEnabled() {
-        return loggingEnabled;
+    private void onGameEvent(GameEvent event) {
+        if (event instanceof GameEvent.MoveMade m) {
+            moveCount = historyIndex;
+            while (moveNotations.size() > moveCount) moveNotations.remove(moveNotations.size() - 1);
+            while (checkpoints.size() > moveCount / CHECKPOINT_INTERVAL + 1) checkpoints.remove(checkpoints.size() - 1);
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+                keys = Arrays.copyOf(keys, moveCount * 2 + 1);
+            }
+            moves[moveCount++] = m.position().getLastMove();
+            moveNotations.add(m.notation());
+            moveTo(moveCount);
+        }
     }
 
     /**
-     * Saves the current state of the board to the history list.
-     * Also records the position for threefold repetition detection.
+     * Brings the game position to the given ply and the draw rules with it.
+     * Short steps play or take back moves; longer jumps restart from a checkpoint.
      */
-    public void saveState() {
-        while (history.size() > historyIndex + 1) {
-            history.remove(history.size() - 1);
-            moveNotations.remove(moveNotations.size() - 1);
+    private void moveTo(int ply) {
+        int from = historyIndex;
+        if (ply < historyIndex && historyIndex - ply <= Math.min(CHECKPOINT_INTERVAL, position.undoDepth())) {
+            while (historyIndex > ply) {
+                position.unmakeMove();
+                historyIndex--;
+            }
+        } else if (ply < historyIndex || ply - historyIndex > CHECKPOINT_INTERVAL) {
+            int checkpoint = ply / CHECKPOINT_INTERVAL;
+            position = checkpoints.get(checkpoint).copyWithoutHistory();
+            historyIndex = checkpoint * CHECKPOINT_INTERVAL;
         }
+        while (historyIndex < ply) playNext();
 
-        history.add(SpecialMoves.copyBoard(board.getBoard()));
-        historyIndex++;
-
-        boolean whiteToMove = historyIndex % 2 == 0;
-        DrawRules.recordPosition(board.getBoard(), whiteToMove);
+        for (int i = from; i > ply; i--) DrawRules.removePosition(keys[i]);
+        for (int i = from + 1; i <= ply; i++) DrawRules.recordPosition(keys[i]);
+        DrawRules.setHalfmoveClock(position.getHalfmoveClock());
     }
 
+    /**
+     * Plays the next move of the history, storing a checkpoint when one is due.
+     */
+    private void playNext() {
+        position.makeMove(moves[historyIndex]);
+        historyIndex++;
+        keys[historyIndex] = position.getKey();
+        if (historyIndex % CHECKPOINT_INTERVAL == 0 && checkpoints.size() == historyIndex / CHECKPOINT_INTERVAL)
+            checkpoints.add(position.copyWithoutHistory());
+    }
 
     /**
      * Reverts the last move if possible.
      */
     public void undo() {
         if (historyIndex > 0) {
-            loggingEnabled = false;
-            historyIndex--;
-            board.setBoard(SpecialMoves.copyBoard(history.get(historyIndex)));
-            board.switchPlayer();
-            gameLog.removeLastMove();
-            board.redraw();
-            loggingEnabled = true;
+            moveTo(historyIndex - 1);
+            board.setPosition(position.copyWithRecentHistory());
+            board.fireGameEvent(new GameEvent.Undone(position.isWhiteToMove()));
         }
     }
 
     /**
      * Reapplies a previously undone move if possible.
      */
-
-
     public void redo() {
-        if (historyIndex < history.size() - 1) {
-            historyIndex++;
-
-            String[][] current = SpecialMoves.copyBoard(history.get(historyIndex));
-            String[][] previous = history.get(historyIndex - 1);
-
-            board.setBoard(current);
-            board.switchPlayer();
-            board.redraw();
-
-            if (gameLog != null) {
-                // Zjisti tah ze změny boardu (from-to)
-                for (int r1 = 0; r1 < 8; r1++) {
-                    for (int c1 = 0; c1 < 8; c1++) {
-                        String fromPiece = previous[r1][c1];
-                        String toPiece = current[r1][c1];
-                        if (fromPiece != null && toPiece == null) {
-                            for (int r2 = 0; r2 < 8; r2++) {
-                                for (int c2 = 0; c2 < 8; c2++) {
-                                    if (previous[r2][c2] == null && fromPiece.equals(current[r2][c2])) {
-                                        String captured = previous[r2][c2];
-                                        String notation = gameLog.getLastNotationPreview(r1, c1, r2, c2, fromPiece, captured, current, historyIndex % 2 == 0);
-                                        gameLog.addNotationDirectly(notation);
-                                        saveNotation(notation);
-                                        return;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        if (historyIndex < moveCount) {
+            String notation = moveNotations.get(historyIndex);
+            moveTo(historyIndex + 1);
+            board.setPosition(position.copyWithRecentHistory());
+            board.fireGameEvent(new GameEvent.Redone(notation, position.isWhiteToMove()));
         }
     }
 
-
-
-
-
-
     /**
-     * Saves a move notation to the notation history.
+     * Shows the position after the given number of moves of the game, backwards or
+     * forwards. Moves after it stay in the history and can be redone.
      *
-     * @param notation the algebraic notation of the move
+     * @param ply number of moves played in the position to show, 0 for the start
      */
-    public void saveNotation(String notation) {
-
-        int notationIndex = historyIndex - 1;
-
-        while (moveNotations.size() > notationIndex) {
-            moveNotations.remove(moveNotations.size() - 1);
-        }
-
-        if (notationIndex >= 0) {
-            moveNotations.add(notation);
-        }
+    public void seek(int ply) {
+        if (ply < 0 || ply > moveCount || ply == historyIndex) return;
+        moveTo(ply);
+        board.setPosition(position.copyWithRecentHistory());
+        board.fireGameEvent(new GameEvent.JumpedTo(ply, position.isWhiteToMove()));
     }
 
+    /**
+     * Returns the Zobrist key of the current position of the history.
+     *
+     * @return the position key
+     */
+    public long getPositionKey() {
+        return position.getKey();
+    }
 
     /**
-     * Returns the index of the current board state in the history.
+     * Returns the number of moves played to reach the current position.
      *
      * @return the current history index
      */
     public int getHistoryIndex() {
         return historyIndex;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the moves played to reach the current position, without those that
+     * were undone.
+     *
+     * @return the packed moves, in the order played
+     */
+    public int[] getPlayedMoves() {
+        return Arrays.copyOf(moves, historyIndex);
+    }
+
+    /**
+     * Returns the number of moves in the history, including those that were undone.
+     *
+     * @return the number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+}
@@ -0,0 +1,112 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the move history behind undo and redo.
+ */
+public class GameControllerTests {
+
+    private ChessBoardPanel board;
+    private GameController controller;
+    private PositionSnapshot current;
+
+    @BeforeEach
+    void setUp() {
+        DrawRules.reset();
+        board = new ChessBoardPanel(new GameLog());
+        controller = new GameController(board);
+        current = board.getSnapshot();
+    }
+
+    /**
+     * Reports a move to the controller as the board does after playing it.
+     * @param uci move in coordinate notation, e.g. "e2e4"
+     */
+    private void play(String uci) {
+        int from = Bitboards.square('8' - uci.charAt(1), uci.charAt(0) - 'a');
+        int to = Bitboards.square('8' - uci.charAt(3), uci.charAt(2) - 'a');
+        int move = current.findMove(from, to, Bitboards.QUEEN);
+        assertNotEquals(0, move, uci);
+        PositionSnapshot next = PositionSnapshot.afterMove(current, move);
+        board.fireGameEvent(new GameEvent.MoveMade(next, current.isWhiteToMove(), uci));
+        current = next;
+    }
+
+    /**
+     * Tests that undoing castling puts the rook back and redoing it moves both pieces.
+     */
+    @Test
+    void testUndoRedoCastling() {
+        for (String move : "e2e4 e7e5 g1f3 b8c6 f1c4 g8f6 e1g1".split(" ")) play(move);
+        controller.undo();
+        assertEquals("K", board.getBoard()[7][4]);
+        assertEquals("R", board.getBoard()[7][7]);
+        assertNull(board.getBoard()[7][5]);
+        controller.redo();
+        assertEquals("K", board.getBoard()[7][6]);
+        assertEquals("R", board.getBoard()[7][5]);
+        assertEquals(current.getKey(), controller.getPositionKey());
+    }
+
+    /**
+     * Tests that the en passant square survives undo and redo.
+     */
+    @Test
+    void testUndoRedoKeepsEnPassant() {
+        for (String move : "e2e4 a7a6 e4e5 d7d5".split(" ")) play(move);
+        long key = controller.getPositionKey();
+        controller.undo();
+        controller.redo();
+        assertEquals(key, controller.getPositionKey());
+        play("e5d6");
+        controller.undo();
+        assertEquals("p", board.getBoard()[3][3]);
+        assertEquals(key, controller.getPositionKey());
+    }
+
+    /**
+     * Tests that repetition counts and the halfmove clock follow undo and redo.
+     */
+    @Test
+    void testDrawRulesFollowUndoRedo() {
+        long start = controller.getPositionKey();
+        String knights = "g1f3 g8f6 f3g1 f6g8";
+        for (String move : knights.split(" ")) play(move);
+        assertEquals(4, DrawRules.getHalfmoveClock());
+        for (int i = 0; i < 4; i++) controller.undo();
+        assertEquals(0, DrawRules.getHalfmoveClock());
+        for (int i = 0; i < 4; i++) controller.redo();
+        assertEquals(4, DrawRules.getHalfmoveClock());
+        assertFalse(DrawRules.isThreefoldRepetition(start));
+        for (String move : knights.split(" ")) play(move);
+        assertTrue(DrawRules.isThreefoldRepetition(start));
+    }
+
+    /**
+     * Tests that jumping to any ply, through checkpoints or the undo stack, gives
+     * the position played there and keeps the repetition counts right.
+     */
+    @Test
+    void testSeekMatchesPlayedPositions() {
+        String[] line = "g1f3 g8f6 b1c3 b8c6 f3g1 f6g8 c3b1 c6b8 ".repeat(5).trim().split(" ");
+        long[] keys = new long[line.length + 1];
+        keys[0] = controller.getPositionKey();
+        for (int i = 0; i < line.length; i++) {
+            play(line[i]);
+            keys[i + 1] = controller.getPositionKey();
+        }
+        for (int ply : new int[]{0, 37, 5, 16, 33, 32, 40, 17, 1}) {
+            controller.seek(ply);
+            assertEquals(ply, controller.getHistoryIndex());
+            assertEquals(keys[ply], controller.getPositionKey());
+        }
+        controller.seek(20);
+        for (int i = 0; i < 20; i++) controller.undo();
+        assertEquals(keys[0], controller.getPositionKey());
+        assertFalse(DrawRules.isThreefoldRepetition(keys[0]));
+        controller.seek(line.length);
+        assertTrue(DrawRules.isThreefoldRepetition(keys[0]));
+    }
+}
@@ -0,0 +1,59 @@
+import java.awt.Point;
+
+/**
+ * Something that happened in the game, passed to every {@link GameListener}.
+ * Events are fired on the event thread, once per fact: a move, a check, the end
+ * of the game, or an undo, redo or jump to another move.
+ */
+public sealed interface GameEvent {
+
+    /**
+     * A move was played and the board now shows the position after it.
+     * @param position snapshot after the move
+     * @param whiteMoved true if White made the move
+     * @param notation the move in algebraic notation
+     */
+    record MoveMade(PositionSnapshot position, boolean whiteMoved, String notation) implements GameEvent {
+    }
+
+    /**
+     * The side to move is in check. Fired after the move or undo/redo that led to it.
+     * @param whiteInCheck true if the White king is in check
+     * @param king square of the king in check
+     * @param checker square of a piece giving check
+     */
+    record CheckGiven(boolean whiteInCheck, Point king, Point checker) implements GameEvent {
+    }
+
+    /**
+     * The game is over. No further moves are made.
+     * @param result result written to the history, e.g. "White wins" or "Draw"
+     * @param message message shown to the players
+     */
+    record GameEnded(String result, String message) implements GameEvent {
+    }
+
+    /**
+     * The last move was taken back.
+     * @param whiteToMove true if White is to move again
+     */
+    record Undone(boolean whiteToMove) implements GameEvent {
+    }
+
+    /**
+     * A move that was taken back was played again.
+     * @param notation the move in algebraic notation
+     * @param whiteToMove true if White is to move after it
+     */
+    record Redone(String notation, boolean whiteToMove) implements GameEvent {
+    }
+
+    /**
+     * The board jumped to another move of the game, e.g. one picked in the log.
+     * Moves after it can still be redone.
+     * @param ply number of moves played in the position shown
+     * @param whiteToMove true if White is to move there
+     */
+    record JumpedTo(int ply, boolean whiteToMove) implements GameEvent {
+    }
+}
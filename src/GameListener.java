@@ -0,0 +1,13 @@
+/**
+ * Receives the events of a game from {@link ChessBoardPanel}.
+ * Called on the event thread, in the order the listeners were added.
+ */
+@FunctionalInterface
+public interface GameListener {
+
+    /**
+     * Handles an event.
+     * @param event what happened
+     */
+    void onGameEvent(GameEvent event);
+}
@@ -1,16 +1,33 @@
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * A JPanel component that maintains and displays the game log for chess moves.
  * Automatically formats moves into algebraic notation and supports undo/redo.
+ * Subscribed to the game, it follows moves, undo, redo and jumps as they happen.
+ * Undone moves stay in the log, shaded, until a new move replaces them, and
+ * clicking a move asks for the position after it.
  */
-public class GameLog extends JPanel {
+public class GameLog extends JPanel implements GameListener {
+    private static final Highlighter.HighlightPainter CURRENT_MOVE =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(255, 230, 120));
+    private static final Highlighter.HighlightPainter UNDONE_MOVES =
+            new DefaultHighlighter.DefaultHighlightPainter(new Color(225, 225, 225));
+
     private JTextArea logArea;
-    private int moveNumber = 1;
-    private List<String> moves = new ArrayList<>();
+    private List<String> moves = new ArrayList<>(); // Half-moves, White's first
+    private int current; // Half-moves played; the ones after were undone
+    private int[] moveStarts = new int[0];
+    private int[] moveEnds = new int[0];
+    private IntConsumer moveSelectionListener;
 
     /**
      * Constructs the GameLog panel with a non-editable text area inside a scroll pane.
@@ -19,88 +36,99 @@ public class GameLog extends JPanel {
         setLayout(new BorderLayout());
         logArea = new JTextArea(20, 20);
         logArea.setEditable(false);
+        logArea.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int move = moveAt(logArea.viewToModel2D(e.getPoint()));
+                if (move >= 0 && moveSelectionListener != null) moveSelectionListener.accept(move + 1);
+            }
+        });
         JScrollPane scrollPane = new JScrollPane(logArea);
         add(scrollPane, BorderLayout.CENTER);
-
-        moveNumber = 1;
     }
 
-
+    /**
+     * Sets who is told when the player clicks a move.
+     * @param listener receives the number of half-moves up to and including the clicked one
+     */
+    public void setMoveSelectionListener(IntConsumer listener) {
+        this.moveSelectionListener = listener;
+    }
 
     /**
-     * Registers a new move in the game log.
-     * @param fromRow starting row of the piece
-     * @param fromCol starting column of the piece
-     * @param toRow destination row of the piece
-     * @param toCol destination column of the piece
-     * @param piece piece type as a string (e.g., "P", "N")
-     * @param captured piece captured on the destination square, if any
-     * @param board current board state
+     * Adds a move that is already in algebraic notation. Undone moves are dropped.
+     * @param move the move's notation
      * @param whiteMove true if it's white's move, false if black's
      */
-    public void registerMove(int fromRow, int fromCol, int toRow, int toCol, String piece, String captured,
-                             String[][] board, boolean whiteMove) {
-        String move = buildNotation(fromRow, fromCol, toRow, toCol, piece, captured, board, whiteMove);
-        if (whiteMove) {
-            moves.add(moveNumber + ". " + move);
-        } else {
-            if (moves.isEmpty()) {
-                // White move was undone, black move exists alone
-                moves.add(moveNumber + ". ... , " + move);
-            } else {
-                String last = moves.remove(moves.size() - 1);
-                moves.add(last + " , " + move);
-            }
-            moveNumber++;
-        }
+    public void addMove(String move, boolean whiteMove) {
+        while (moves.size() > current) moves.remove(moves.size() - 1);
+        // White move was undone, black move exists alone
+        if (moves.isEmpty() && !whiteMove) moves.add("...");
+        moves.add(move);
+        current = moves.size();
         updateText();
     }
 
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (event instanceof GameEvent.MoveMade m) addMove(m.notation(), m.whiteMoved());
+        else if (event instanceof GameEvent.Undone) setCurrentMove(current - 1);
+        else if (event instanceof GameEvent.Redone r) {
+            if (current < moves.size()) setCurrentMove(current + 1);
+            else addMove(r.notation(), !r.whiteToMove());
+        } else if (event instanceof GameEvent.JumpedTo j) setCurrentMove(j.ply());
+    }
 
     /**
-     * Updates the displayed text area with the current move list.
+     * Marks how many half-moves are played; the ones after stay in the log as undone.
+     * @param halfMoves number of half-moves played
      */
-    private void updateText() {
-        logArea.setText("");
-        for (String move : moves) {
-            logArea.append(move + "\n");
-        }
+    public void setCurrentMove(int halfMoves) {
+        current = Math.max(0, Math.min(halfMoves, moves.size()));
+        updateHighlights();
     }
 
     /**
-     * Removes the last move from the log.
-     * If it was black's move, removes only that half-move.
-     * If it was white's move, removes the entire move entry.
+     * Updates the displayed text area with the current move list.
      */
-    public void removeLastMove() {
-        if (moves.isEmpty()) return;
-        String last = moves.get(moves.size() - 1);
-        if (last.contains(",")) {
-            String whitePart = last.substring(0, last.indexOf(",")).trim();
-            moves.set(moves.size() - 1, whitePart);
-        } else {
-            moves.remove(moves.size() - 1);
-            moveNumber--;
+    private void updateText() {
+        StringBuilder text = new StringBuilder();
+        moveStarts = new int[moves.size()];
+        moveEnds = new int[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            if (i % 2 == 0) text.append(i / 2 + 1).append(". ");
+            else text.append(" , ");
+            moveStarts[i] = text.length();
+            text.append(moves.get(i));
+            moveEnds[i] = text.length();
+            if (i % 2 == 1 || i == moves.size() - 1) text.append('\n');
         }
-        updateText();
+        logArea.setText(text.toString());
+        updateHighlights();
     }
 
     /**
-     * Clears the entire game log and resets move numbering.
+     * Shades the last played move and the undone ones.
      */
-    public void clearLog() {
-        logArea.setText("");
-        moveNumber = 1;
-        moves.clear();
+    private void updateHighlights() {
+        Highlighter highlighter = logArea.getHighlighter();
+        highlighter.removeAllHighlights();
+        try {
+            if (current > 0) highlighter.addHighlight(moveStarts[current - 1], moveEnds[current - 1], CURRENT_MOVE);
+            if (current < moves.size())
+                highlighter.addHighlight(moveStarts[current], moveEnds[moves.size() - 1], UNDONE_MOVES);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
-
     /**
-     * Returns all recorded moves as a single string, separated by new lines.
-     * @return all moves in the log
+     * Returns the index of the half-move shown at a text offset, or -1.
      */
-    public String getAllMoves() {
-        return String.join("\n", moves);
+    private int moveAt(int offset) {
+        for (int i = 0; i < moves.size(); i++)
+            if (offset >= moveStarts[i] && offset <= moveEnds[i]) return i;
+        return -1;
     }
 
     /**
@@ -111,12 +139,11 @@ public class GameLog extends JPanel {
      * @param toCol destination column of the piece
      * @param piece piece type
      * @param captured piece captured on destination square, if any
-     * @param board current board state
-     * @param whiteMove true if it's white's move
+     * @param check true if the move gives check
      * @return algebraic notation string of the move
      */
-    private String buildNotation(int fromRow, int fromCol, int toRow, int toCol, String piece, String captured,
-                                 String[][] board, boolean whiteMove) {
+    public static String buildNotation(int fromRow, int fromCol, int toRow, int toCol, String piece, String captured,
+                                 boolean check) {
         String from = "" + (char) ('a' + fromCol) + (8 - fromRow);
         String to = "" + (char) ('a' + toCol) + (8 - toRow);
         String notation;
@@ -130,8 +157,7 @@ public class GameLog extends JPanel {
             notation = piece.toUpperCase() + (capture ? "x" : "") + to;
         }
 
-        SpecialMoves sm = new SpecialMoves(board, whiteMove, -1, -1);
-        if (sm.isKingInCheck(!whiteMove)) {
+        if (check) {
             notation += "+";
         }
 
@@ -146,48 +172,11 @@ public class GameLog extends JPanel {
      * @param toCol destination column of the piece
      * @param piece piece type
      * @param captured piece captured on destination square, if any
-     * @param board current board state
-     * @param whiteMove true if it's white's move
+     * @param check true if the move gives check
      * @return algebraic notation string preview of the move
      */
     public String getLastNotationPreview(int fromRow, int fromCol, int toRow, int toCol, String piece, String captured,
-                                         String[][] board, boolean whiteMove) {
-        return buildNotation(fromRow, fromCol, toRow, toCol, piece, captured, board, whiteMove);
-    }
-
-    /**
-     * Sets the current move number (used when restoring from history).
-     * @param moveNumber the move number to set
-     */
-    public void setMoveNumber(int moveNumber) {
-        this.moveNumber = moveNumber;
+                                         boolean check) {
+        return buildNotation(fromRow, fromCol, toRow, toCol, piece, captured, check);
     }
-    /**
-     * Adds a move notation directly to the log.
-     * If the notation starts with a move number (e.g., "1. e4"), it creates a new line.
-     * Otherwise, appends it to the last move as a black move.
-     * @param notation algebraic notation string to add
-     */
-    public void addNotationDirectly(String notation) {
-        if (moves.isEmpty()) {
-
-            moves.add("1. " + notation);
-        } else {
-            String last = moves.get(moves.size() - 1);
-            if (last.contains(",")) {
-
-                int moveNumber = moves.size() + 1;
-                moves.add(moveNumber + ". " + notation);
-            } else {
-
-                moves.set(moves.size() - 1, last + " , " + notation);
-            }
-        }
-        updateText();
-    }
-
-
-
-
-
 }
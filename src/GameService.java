@@ -0,0 +1,95 @@
+import javax.swing.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Runs the game's rules work and file I/O off the Swing event thread.
+ * Tasks run on virtual threads; their results are handed back on the event thread.
+ * All methods must be called on the event thread.
+ */
+public class GameService {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private Future<?> latest;
+    private long generation;
+
+    /**
+     * Runs a computation whose result only matters while it is the newest one,
+     * such as the position after a move. Submitting another one, or calling
+     * {@link #cancel()}, cancels this one and drops its result. If it fails, the
+     * failure is reported and no result is delivered, but the service is no longer busy.
+     * @param task computation to run in the background
+     * @param onResult receives the result on the event thread
+     */
+    public <T> void submitLatest(Callable<T> task, Consumer<T> onResult) {
+        cancel();
+        long id = generation;
+        latest = executor.submit(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (id == generation) latest = null;
+                });
+                report(e);
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (id != generation) return; // Superseded while running
+                latest = null;
+                onResult.accept(result);
+            });
+        });
+    }
+
+    /**
+     * Runs work that must complete, such as writing the game history.
+     * It is never cancelled.
+     * @param task work to run in the background
+     * @param onResult receives the result on the event thread
+     */
+    public <T> void submit(Callable<T> task, Consumer<T> onResult) {
+        executor.submit(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                report(e);
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onResult.accept(result));
+        });
+    }
+
+    /**
+     * Returns true while a computation from {@link #submitLatest} is running.
+     */
+    public boolean isBusy() {
+        return latest != null;
+    }
+
+    /**
+     * Cancels the running computation from {@link #submitLatest}, if any.
+     */
+    public void cancel() {
+        generation++;
+        if (latest != null) {
+            latest.cancel(true);
+            latest = null;
+        }
+    }
+
+    /**
+     * Passes a failure on to the event thread so it is reported there like any
+     * other exception in the UI.
+     */
+    private static void report(Exception e) {
+        SwingUtilities.invokeLater(() -> {
+            throw new IllegalStateException("Background task failed", e);
+        });
+    }
+}
@@ -0,0 +1,43 @@
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the background work behind the board.
+ */
+public class GameServiceTests {
+
+    /**
+     * Tests that a failing computation does not leave the service busy, which
+     * would make the board ignore clicks for the rest of the game.
+     */
+    @Test
+    void testFailedTaskIsNoLongerBusy() throws Exception {
+        GameService service = new GameService();
+        AtomicBoolean busy = new AtomicBoolean();
+        AtomicBoolean delivered = new AtomicBoolean();
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> { }); // The failure is reported on the event thread
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                service.submitLatest(() -> {
+                    throw new IllegalStateException("Broken position");
+                }, result -> delivered.set(true));
+                busy.set(service.isBusy());
+            });
+            assertTrue(busy.get());
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (busy.get() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                SwingUtilities.invokeAndWait(() -> busy.set(service.isBusy()));
+            }
+            assertFalse(busy.get());
+            assertFalse(delivered.get());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+}
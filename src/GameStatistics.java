@@ -0,0 +1,178 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Totals over all stored games: the number of each result, the total play time
+ * and how many games lasted how many moves. They are kept in a small file next
+ * to the {@link GameStore} and brought up to date with each saved game, so the
+ * statistics are shown without reading the games. The file is replaced
+ * atomically; if it is missing or does not match the number of stored games,
+ * it is rebuilt from the store.
+ */
+public final class GameStatistics {
+
+    public static final Path STATS_FILE = Paths.get("games.stats");
+
+    /** Moves (White and Black) per bucket of the game length distribution. */
+    public static final int BUCKET_MOVES = 10;
+    /** Buckets of the length distribution; the last one holds all longer games. */
+    public static final int BUCKETS = 11;
+
+    private static final int MAGIC = 0x50434B53; // "PCKS"
+    private static final int VERSION = 1;
+
+    private int games;
+    private final int[] results = new int[StoredGame.UNKNOWN + 1];
+    private long totalMillis;
+    private final int[] lengths = new int[BUCKETS];
+
+    /**
+     * Counts a game.
+     * @param game the game
+     */
+    public void add(StoredGame game) {
+        games++;
+        results[game.result()]++;
+        totalMillis += game.durationMillis();
+        lengths[Math.min(BUCKETS - 1, (game.plies() + 1) / 2 / BUCKET_MOVES)]++;
+    }
+
+    /**
+     * Returns the number of games counted.
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games with a result.
+     * @param result a result code of {@link StoredGame}
+     */
+    public int getResultCount(int result) {
+        return results[result];
+    }
+
+    /**
+     * Returns the total play time in milliseconds.
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * Returns the average play time in milliseconds, or 0 if there are no games.
+     */
+    public long getAverageMillis() {
+        return games == 0 ? 0 : totalMillis / games;
+    }
+
+    /**
+     * Returns the number of games of a length; bucket {@code i} holds games of
+     * {@code i * BUCKET_MOVES} to {@code (i + 1) * BUCKET_MOVES - 1} moves.
+     * @param bucket index from 0 to {@link #BUCKETS} - 1
+     */
+    public int getLengthCount(int bucket) {
+        return lengths[bucket];
+    }
+
+    /**
+     * Counts every game of a store.
+     * @param store the store
+     * @return the statistics
+     * @throws IOException if the store cannot be read
+     */
+    public static GameStatistics rebuild(GameStore store) throws IOException {
+        GameStatistics stats = new GameStatistics();
+        for (int i = 0, n = store.size(); i < n; i++) stats.add(store.read(i));
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of a store, rebuilding and saving them if the file is
+     * missing or out of date.
+     * @param store the store
+     * @param file the statistics file
+     * @return the statistics
+     * @throws IOException if the store or the file cannot be read, or the file written
+     */
+    public static synchronized GameStatistics of(GameStore store, Path file) throws IOException {
+        GameStatistics stats = load(file);
+        if (stats == null || stats.games != store.size()) {
+            stats = rebuild(store);
+            stats.save(file);
+        }
+        return stats;
+    }
+
+    /**
+     * Counts a game just appended to a store and saves the statistics.
+     * @param store the store, already holding the game
+     * @param game the game appended last
+     * @param file the statistics file
+     * @return the updated statistics
+     * @throws IOException if the store or the file cannot be read, or the file written
+     */
+    public static synchronized GameStatistics recordGame(GameStore store, StoredGame game, Path file) throws IOException {
+        GameStatistics stats = load(file);
+        if (stats == null || stats.games != store.size() - 1) {
+            stats = rebuild(store);
+        } else {
+            stats.add(game);
+        }
+        stats.save(file);
+        return stats;
+    }
+
+    /**
+     * Reads the statistics file.
+     * @param file the file
+     * @return the statistics, or null if there is no file or it is not a complete statistics file
+     * @throws IOException if the file cannot be read
+     */
+    public static GameStatistics load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            GameStatistics stats = new GameStatistics();
+            stats.games = in.readInt();
+            for (int i = 0; i < stats.results.length; i++) stats.results[i] = in.readInt();
+            stats.totalMillis = in.readLong();
+            for (int i = 0; i < BUCKETS; i++) stats.lengths[i] = in.readInt();
+            return stats;
+        } catch (NoSuchFileException | EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the statistics to a temporary file and moves it over the old one, so
+     * readers see either the old or the new statistics.
+     * @param file the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(games);
+            for (int count : results) out.writeInt(count);
+            out.writeLong(totalMillis);
+            for (int count : lengths) out.writeInt(count);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary store of finished games, replacing the text history file.
+ * <p>
+ * The data file starts with a magic number and a version, followed by one record
+ * per game: a fixed {@value #HEADER_SIZE}-byte header (end time in milliseconds,
+ * duration in milliseconds, number of plies, result) and then two bytes per move
+ * (see {@link StoredGame#encodeMove(int)}). The index file holds the offset of
+ * each record in the data file as eight bytes, so game {@code n} is found with
+ * one read at {@code n * 8} and the number of games is the index length divided
+ * by eight. Appending writes the record first and its offset second; a crash in
+ * between only leaves unused bytes at the end of the data file.
+ * <p>
+ * Methods are synchronized, so a store may be shared between the thread saving a
+ * game and the event thread.
+ */
+public class GameStore implements Closeable {
+
+    public static final Path DATA_FILE = Paths.get("games.dat");
+    public static final Path INDEX_FILE = Paths.get("games.idx");
+
+    /** Bytes of the per-game header. */
+    public static final int HEADER_SIZE = 16;
+
+    // Offsets of the fields within a game header
+    static final int TIMESTAMP = 0;
+    static final int DURATION = 8;
+    static final int PLIES = 12;
+    static final int RESULT = 14;
+
+    static final int MAGIC = 0x50434B47; // "PCKG"
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final ByteBuffer offset = ByteBuffer.allocate(8);
+
+    /**
+     * Opens a store, creating its files if they do not exist.
+     * @param dataFile file with the game records
+     * @param indexFile file with the record offsets
+     * @throws IOException if the files cannot be opened or are not a game store
+     */
+    public GameStore(Path dataFile, Path indexFile) throws IOException {
+        data = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            checkFileHeader();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the store in the working directory.
+     * @throws IOException if the files cannot be opened
+     */
+    public static GameStore open() throws IOException {
+        return new GameStore(DATA_FILE, INDEX_FILE);
+    }
+
+    /**
+     * Returns true if the store in the working directory exists.
+     */
+    public static boolean exists() {
+        return Files.exists(DATA_FILE);
+    }
+
+    /**
+     * Deletes the store in the working directory.
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void delete() throws IOException {
+        Files.deleteIfExists(INDEX_FILE);
+        Files.deleteIfExists(DATA_FILE);
+    }
+
+    private void checkFileHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        if (data.size() == 0) {
+            buffer.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(data, buffer, 0);
+            return;
+        }
+        readFully(data, buffer, 0);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            throw new IOException("Not a game store");
+    }
+
+    /**
+     * Returns the number of games stored.
+     */
+    public synchronized int size() throws IOException {
+        return (int) (index.size() / 8);
+    }
+
+    /**
+     * Adds a game at the end of the store.
+     * @param game the game to add
+     * @return the number of the game, counted from 0
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized int append(StoredGame game) throws IOException {
+        return appendAll(List.of(game));
+    }
+
+    /**
+     * Adds games at the end of the store with one write to each file.
+     * @param games the games to add, in order
+     * @return the number of the first game added
+     * @throws IOException if the store cannot be written
+     */
+    public synchronized int appendAll(Collection<StoredGame> games) throws IOException {
+        int first = size();
+        long end = data.size();
+        int bytes = 0;
+        for (StoredGame game : games) bytes += HEADER_SIZE + game.plies() * 2;
+        ByteBuffer records = ByteBuffer.allocate(bytes);
+        ByteBuffer offsets = ByteBuffer.allocate(games.size() * 8);
+        for (StoredGame game : games) {
+            offsets.putLong(end + records.position());
+            records.putLong(game.timestamp())
+                    .putInt(game.durationMillis())
+                    .putShort((short) game.plies())
+                    .put((byte) game.result())
+                    .put((byte) 0);
+            for (short move : game.moves()) records.putShort(move);
+        }
+        writeFully(data, records.flip(), end);
+        writeFully(index, offsets.flip(), (long) first * 8);
+        return first;
+    }
+
+    /**
+     * Reads a game with its moves.
+     * @param id number of the game, from 0 to {@link #size()} - 1
+     * @return the game
+     * @throws IOException if the store cannot be read
+     */
+    public synchronized StoredGame read(int id) throws IOException {
+        long position = readHeader(id);
+        ByteBuffer moves = ByteBuffer.allocate(Short.toUnsignedInt(header.getShort(PLIES)) * 2);
+        readFully(data, moves, position + HEADER_SIZE);
+        short[] codes = new short[moves.capacity() / 2];
+        moves.asShortBuffer().get(codes);
+        return new StoredGame(header.getLong(TIMESTAMP), header.get(RESULT), header.getInt(DURATION), codes);
+    }
+
+    private long readHeader(int id) throws IOException {
+        if (id < 0 || id >= size()) throw new IndexOutOfBoundsException("Game " + id + " of " + size());
+        readFully(index, offset.clear(), (long) id * 8);
+        long position = offset.getLong(0);
+        readFully(data, header.clear(), position);
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Game store is truncated");
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+    }
+}
@@ -0,0 +1,301 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the binary game store and the import of text histories.
+ */
+public class GameStoreTests {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("games");
+    }
+
+    /**
+     * Plays moves in coordinate notation from the start position.
+     */
+    private static int[] play(String line) {
+        Position position = Position.fromFen(Position.START_FEN);
+        String[] tokens = line.split(" ");
+        int[] moves = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String t = tokens[i];
+            int from = Bitboards.square('8' - t.charAt(1), t.charAt(0) - 'a');
+            int to = Bitboards.square('8' - t.charAt(3), t.charAt(2) - 'a');
+            int promotion = t.length() > 4 ? "pnbrq".indexOf(t.charAt(4)) : Bitboards.QUEEN;
+            moves[i] = position.toMove(from, to, promotion);
+            position.makeMove(moves[i]);
+        }
+        return moves;
+    }
+
+    /**
+     * Tests that games come back as written after the store is reopened.
+     */
+    @Test
+    void testAppendAndReadBack() throws IOException {
+        int[] moves = play("e2e4 d7d5 e4d5 g8f6 d5d6 f6e4 d6c7 e4f2 c7b8n");
+        StoredGame first = new StoredGame(1_700_000_000_000L, StoredGame.WHITE_WINS, 93_250, StoredGame.encodeMoves(moves));
+        StoredGame empty = new StoredGame(1_700_000_100_000L, StoredGame.DRAW, 1_000, new short[0]);
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            assertEquals(0, store.append(first));
+            assertEquals(1, store.append(empty));
+        }
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            assertEquals(2, store.size());
+            StoredGame second = store.read(1);
+            assertEquals(StoredGame.DRAW, second.result());
+            assertEquals(0, second.plies());
+            StoredGame game = store.read(0);
+            assertEquals(1_700_000_000_000L, game.timestamp());
+            assertEquals(93_250, game.durationMillis());
+            assertEquals("White wins", game.resultName());
+
+            Position position = Position.fromFen(Position.START_FEN);
+            for (int i = 0; i < moves.length; i++) {
+                int move = StoredGame.decodeMove(position, game.moves()[i]);
+                assertEquals(moves[i], move);
+                position.makeMove(move);
+            }
+            assertEquals(Bitboards.KNIGHT, Move.promotion(moves[moves.length - 1]));
+        }
+    }
+
+    /**
+     * Tests that the mapped view reads the same games as the store and that the
+     * history filter keeps the matching ones, newest first.
+     */
+    @Test
+    void testMappedViewAndFilter() throws IOException {
+        int[] moves = play("e2e4 e7e5 g1f3");
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            for (int i = 0; i < 10; i++)
+                store.append(new StoredGame(1_000L * i, i % 3, i, StoredGame.encodeMoves(Arrays.copyOf(moves, i % 4))));
+        }
+        try (GameStoreView view = GameStoreView.open(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            assertEquals(10, view.size());
+            try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+                for (int i = 0; i < 10; i++) {
+                    StoredGame game = store.read(i);
+                    assertEquals(game.timestamp(), view.timestamp(i));
+                    assertEquals(game.plies(), view.plies(i));
+                    assertArrayEquals(game.moves(), view.read(i).moves());
+                }
+            }
+            assertArrayEquals(new int[]{7, 4}, HistoryBrowser.filter(view, StoredGame.BLACK_WINS, 2_000, 8_000));
+            assertEquals(10, HistoryBrowser.filter(view, -1, Long.MIN_VALUE, Long.MAX_VALUE).length);
+        }
+    }
+
+    /**
+     * Tests that the position index finds the games that reached a position and the
+     * moves played next, after a build, a saved game and games added another way.
+     */
+    @Test
+    void testPositionIndex() throws IOException {
+        Path data = dir.resolve("g.dat"), index = dir.resolve("g.pos"), log = dir.resolve("g.pos.log");
+        int[] ruy = play("e2e4 e7e5 g1f3 b8c6 f1b5");
+        int[] italian = play("e2e4 e7e5 g1f3 b8c6 f1c4");
+        int[] sicilian = play("e2e4 c7c5");
+        try (GameStore store = new GameStore(data, dir.resolve("g.idx"))) {
+            for (int i = 0; i < 300; i++)
+                store.append(new StoredGame(i, StoredGame.DRAW, 0, StoredGame.encodeMoves(i % 3 == 0 ? ruy : italian)));
+        }
+        Position position = Position.fromFen(Position.START_FEN);
+        for (int i = 0; i < 4; i++) position.makeMove(ruy[i]);
+        long key = position.getKey();
+
+        try (GameStoreView view = GameStoreView.open(data, dir.resolve("g.idx"))) {
+            PositionIndex.build(view, index, log, 2);
+        }
+        try (PositionIndex positions = PositionIndex.open(index, log)) {
+            assertEquals(300, positions.games());
+            assertEquals(300 * 6, positions.size());
+            List<PositionIndex.NextMove> next = positions.nextMoves(key);
+            assertEquals(2, next.size());
+            assertEquals(StoredGame.encodeMove(italian[4]), next.get(0).move());
+            assertEquals(200, next.get(0).count());
+            assertEquals(100, next.get(1).count());
+            assertEquals(10, positions.find(key, 10).size());
+            assertEquals(new PositionIndex.Hit(0, 4), positions.find(key, 1).get(0));
+            assertEquals(List.of(new PositionIndex.Hit(299, 4), new PositionIndex.Hit(298, 4)), positions.latest(key, 2));
+            assertTrue(positions.nextMoves(Position.fromFen("8/8/8/8/8/8/8/K6k w - - 0 1").getKey()).isEmpty());
+        }
+
+        // A saved game goes to the log; a game added another way is caught up
+        StoredGame saved = new StoredGame(300, StoredGame.BLACK_WINS, 0, StoredGame.encodeMoves(sicilian));
+        try (GameStore store = new GameStore(data, dir.resolve("g.idx"))) {
+            PositionIndex.recordGame(store.append(saved), saved, index, log);
+            store.append(new StoredGame(301, StoredGame.DRAW, 0, StoredGame.encodeMoves(ruy)));
+        }
+        try (PositionIndex positions = PositionIndex.open(index, log)) {
+            assertEquals(301, positions.games());
+            List<PositionIndex.NextMove> next = positions.nextMoves(Position.fromFen(Position.START_FEN).getKey());
+            assertEquals(1, next.size());
+            assertEquals(301, next.get(0).count());
+            assertEquals(List.of(new PositionIndex.Hit(300, 2)),
+                    positions.find(positionAfter(sicilian), 10));
+        }
+        try (GameStoreView view = GameStoreView.open(data, dir.resolve("g.idx"));
+             PositionIndex positions = PositionIndex.openUpToDate(view, index, log)) {
+            assertEquals(302, positions.games());
+            assertEquals(List.of(new PositionIndex.Hit(301, 0), new PositionIndex.Hit(300, 0), new PositionIndex.Hit(299, 0)),
+                    positions.latest(Position.fromFen(Position.START_FEN).getKey(), 3));
+            assertEquals(101, positions.nextMoves(positionAfter(ruy)).get(0).count());
+        }
+    }
+
+    /**
+     * Tests that merging the log into the index file gives the same answers as a
+     * full build, and that a log left behind by a crash during the merge is ignored.
+     */
+    @Test
+    void testPositionIndexMergesLog() throws IOException {
+        Path data = dir.resolve("g.dat"), index = dir.resolve("g.pos"), log = dir.resolve("g.pos.log");
+        String[] lines = {"e2e4 e7e5 g1f3 b8c6 f1b5", "e2e4 e7e5 g1f3 b8c6 f1c4", "e2e4 c7c5", "d2d4 d7d5 c2c4",
+                "g1f3 d7d5 d2d4", "e2e4 c7c5 g1f3 d7d6 d2d4"};
+        List<StoredGame> games = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            games.add(new StoredGame(i, i % 3, 0, StoredGame.encodeMoves(play(lines[i * 7 % lines.length]))));
+        try (GameStore store = new GameStore(data, dir.resolve("g.idx"))) {
+            store.appendAll(games.subList(0, 10));
+            try (GameStoreView view = GameStoreView.open(data, dir.resolve("g.idx"))) {
+                PositionIndex.build(view, index, log, 1);
+            }
+            for (int i = 10; i < 39; i++) PositionIndex.recordGame(store.append(games.get(i)), games.get(i), index, log, 40);
+            byte[] stale = Files.readAllBytes(log);
+            // A full log: the last game is merged with the others
+            PositionIndex.recordGame(store.append(games.get(39)), games.get(39), index, log, 0);
+            assertFalse(Files.exists(log));
+            Files.write(log, stale);
+        }
+        try (GameStoreView view = GameStoreView.open(data, dir.resolve("g.idx"))) {
+            PositionIndex.build(view, dir.resolve("full.pos"), dir.resolve("full.log"), 2);
+        }
+        try (PositionIndex merged = PositionIndex.open(index, log);
+             PositionIndex full = PositionIndex.open(dir.resolve("full.pos"), dir.resolve("full.log"))) {
+            assertEquals(40, merged.games());
+            assertEquals(full.size(), merged.size());
+            for (String line : lines) {
+                int[] moves = play(line);
+                for (int n = 0; n <= moves.length; n++) {
+                    long key = positionAfter(Arrays.copyOf(moves, n));
+                    assertEquals(full.find(key, 100), merged.find(key, 100));
+                    assertEquals(full.nextMoves(key), merged.nextMoves(key));
+                    assertEquals(full.latest(key, 3), merged.latest(key, 3));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the position after the given moves.
+     */
+    private static long positionAfter(int[] moves) {
+        Position position = Position.fromFen(Position.START_FEN);
+        for (int move : moves) position.makeMove(move);
+        return position.getKey();
+    }
+
+    /**
+     * Tests that statistics kept up to date game by game match a rebuild from the
+     * store, and that an out-of-date file is rebuilt.
+     */
+    @Test
+    void testStatisticsFollowSavedGames() throws IOException {
+        Path file = dir.resolve("g.stats");
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            int[] results = {StoredGame.WHITE_WINS, StoredGame.DRAW, StoredGame.BLACK_WINS, StoredGame.WHITE_WINS};
+            for (int i = 0; i < results.length; i++) {
+                StoredGame game = new StoredGame(0, results[i], 1_000 * (i + 1), new short[i * 25]);
+                store.append(game);
+                GameStatistics.recordGame(store, game, file);
+            }
+            GameStatistics stats = GameStatistics.load(file);
+            GameStatistics rebuilt = GameStatistics.rebuild(store);
+            assertEquals(4, stats.getGames());
+            assertEquals(2, stats.getResultCount(StoredGame.WHITE_WINS));
+            assertEquals(10_000, stats.getTotalMillis());
+            assertEquals(2_500, stats.getAverageMillis());
+            for (int i = 0; i < GameStatistics.BUCKETS; i++)
+                assertEquals(rebuilt.getLengthCount(i), stats.getLengthCount(i));
+            assertEquals(1, stats.getLengthCount(3)); // 75 plies = 38 moves
+
+            store.append(new StoredGame(0, StoredGame.DRAW, 0, new short[0]));
+            assertEquals(2, GameStatistics.of(store, file).getResultCount(StoredGame.DRAW));
+            assertEquals(5, GameStatistics.load(file).getGames());
+        }
+    }
+
+    /**
+     * Tests that a text history is imported with the notation of the game log:
+     * castling as a king move, pawn captures and check marks.
+     */
+    @Test
+    void testImportTextHistory() throws IOException {
+        Path history = dir.resolve("history.txt");
+        Files.writeString(history, """
+                === Game 2025-05-31 00:11:36 ===
+                Result: Black wins
+                Duration: 00:01:02:003
+                Moves:
+                1. e4 , e5
+                2. Nf3 , Nc6
+                3. Bc4 , Nf6
+                4. Kg1 , Bc5
+                5. d4 , exd4
+                6. Bxf7+ ,
+
+                === Game 2025-05-31 00:13:48 ===
+                Result: Draw
+                Duration: 00:00:43:089
+                Moves:
+
+
+                """);
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            assertEquals(2, HistoryImporter.importFile(history, store));
+            StoredGame game = store.read(0);
+            assertEquals(StoredGame.BLACK_WINS, game.result());
+            assertEquals(62_003, game.durationMillis());
+            assertEquals(11, game.plies());
+            Position position = Position.fromFen(Position.START_FEN);
+            for (int i = 0; i < game.plies(); i++) {
+                int move = StoredGame.decodeMove(position, game.moves()[i]);
+                assertEquals(i == 6, Move.isCastling(move));
+                position.makeMove(move);
+            }
+            assertTrue(position.isKingInCheck(false));
+            assertEquals(0, store.read(1).plies());
+        }
+    }
+
+    /**
+     * Tests SAN with disambiguation, promotion and castling.
+     */
+    @Test
+    void testSanParsing() {
+        Position position = Position.fromFen("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals(Move.of(60, 62, 0, Move.CASTLING), San.parse(position, "O-O"));
+        assertEquals(Move.of(60, 58, 0, Move.CASTLING), San.parse(position, "O-O-O"));
+        assertEquals(Bitboards.square(7, 3), Move.to(San.parse(position, "Rad1")));
+        assertEquals(Bitboards.square(7, 0), Move.from(San.parse(position, "Rad1")));
+        assertEquals(Bitboards.square(7, 7), Move.from(San.parse(position, "Rhf1")));
+        int promotion = San.parse(position, "bxa8=N+");
+        assertTrue(Move.isCapture(promotion));
+        assertEquals(Bitboards.KNIGHT, Move.promotion(promotion));
+        assertEquals(Bitboards.QUEEN, Move.promotion(San.parse(position, "b8")));
+        assertEquals(0, San.parse(position, "Nf3"));
+    }
+}
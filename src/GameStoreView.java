@@ -0,0 +1,118 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a {@link GameStore} with both files mapped into memory.
+ * Reading a game's header is a few buffer reads and nothing is loaded until it
+ * is asked for, so a list of games can show any part of a very large store
+ * straight away. Games appended after the view was opened are not seen.
+ * <p>
+ * Each file is mapped as one buffer, so a store is limited to 2 GB, tens of
+ * millions of games. Java unmaps a file only once its buffer is garbage
+ * collected; closing the view drops the buffers so that can happen.
+ */
+public final class GameStoreView implements Closeable {
+
+    private ByteBuffer data;
+    private ByteBuffer index;
+    private final int size;
+
+    private GameStoreView(ByteBuffer data, ByteBuffer index) throws IOException {
+        this.data = data;
+        this.index = index;
+        if (data.limit() < GameStore.FILE_HEADER_SIZE || data.getInt(0) != GameStore.MAGIC
+                || data.getInt(4) != GameStore.VERSION) throw new IOException("Not a game store");
+        size = index.limit() / 8;
+    }
+
+    /**
+     * Maps the files of a store.
+     * @param dataFile file with the game records
+     * @param indexFile file with the record offsets
+     * @return the view
+     * @throws IOException if the files cannot be mapped or are not a game store
+     */
+    public static GameStoreView open(Path dataFile, Path indexFile) throws IOException {
+        return new GameStoreView(map(dataFile), map(indexFile));
+    }
+
+    /**
+     * Maps the store in the working directory.
+     * @throws IOException if the files cannot be mapped
+     */
+    public static GameStoreView open() throws IOException {
+        return open(GameStore.DATA_FILE, GameStore.INDEX_FILE);
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Game store is too large: " + file);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // Stays mapped after closing
+        }
+    }
+
+    /**
+     * Returns the number of games in the view.
+     */
+    public int size() {
+        return size;
+    }
+
+    private int offset(int id) {
+        if (index == null) throw new IllegalStateException("Game store view is closed");
+        return (int) index.getLong(id * 8);
+    }
+
+    /**
+     * Returns when a game ended, in milliseconds since the epoch.
+     */
+    public long timestamp(int id) {
+        return data.getLong(offset(id) + GameStore.TIMESTAMP);
+    }
+
+    /**
+     * Returns the result code of a game; see {@link StoredGame}.
+     */
+    public int result(int id) {
+        return data.get(offset(id) + GameStore.RESULT);
+    }
+
+    /**
+     * Returns the length of a game in milliseconds.
+     */
+    public int durationMillis(int id) {
+        return data.getInt(offset(id) + GameStore.DURATION);
+    }
+
+    /**
+     * Returns the number of half-moves of a game.
+     */
+    public int plies(int id) {
+        return Short.toUnsignedInt(data.getShort(offset(id) + GameStore.PLIES));
+    }
+
+    /**
+     * Reads a game with its moves.
+     * @param id number of the game, from 0 to {@link #size()} - 1
+     * @return the game
+     */
+    public StoredGame read(int id) {
+        int offset = offset(id);
+        short[] moves = new short[plies(id)];
+        for (int i = 0; i < moves.length; i++) moves[i] = data.getShort(offset + GameStore.HEADER_SIZE + i * 2);
+        return new StoredGame(timestamp(id), result(id), durationMillis(id), moves);
+    }
+
+    /**
+     * Drops the mapped files. The view cannot be read afterwards.
+     */
+    @Override
+    public void close() {
+        data = null;
+        index = null;
+    }
+}
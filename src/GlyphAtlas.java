@@ -0,0 +1,67 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * The twelve piece glyphs pre-rendered side by side into one image.
+ * Drawing a piece is then a plain image copy. The glyphs are laid out again only
+ * when the square size or the display scale changes, e.g. when the window is resized
+ * or moved to a HiDPI screen.
+ */
+public class GlyphAtlas {
+
+    private static final String PIECES = "PNBRQKpnbrqk";
+    private static final String GLYPHS = "♙♘♗♖♕♔♟♞♝♜♛♚";
+    /** Glyph size relative to the square, as the original 32 pt font on 60 px squares. */
+    private static final float FONT_RATIO = 32f / 60f;
+
+    private BufferedImage image;
+    private int cellSize;
+    private double scale;
+
+    /**
+     * Draws a piece filling a square.
+     * @param g graphics to draw with; its transform gives the display scale
+     * @param piece piece code, e.g. "P" or "k"
+     * @param x left edge of the square
+     * @param y top edge of the square
+     * @param size side of the square in user space
+     */
+    public void draw(Graphics2D g, String piece, int x, int y, int size) {
+        int index = PIECES.indexOf(piece);
+        if (index < 0) return;
+        double scale = g.getTransform().getScaleX();
+        int deviceSize = Math.max(1, (int) Math.round(size * scale));
+        if (image == null || deviceSize != cellSize || scale != this.scale)
+            build(g.getDeviceConfiguration(), deviceSize, scale);
+        int sx = index * cellSize;
+        g.drawImage(image, x, y, x + size, y + size, sx, 0, sx + cellSize, cellSize, null);
+    }
+
+    /**
+     * Renders all glyphs at the given size in device pixels.
+     */
+    private void build(GraphicsConfiguration config, int deviceSize, double scale) {
+        BufferedImage atlas = config != null
+                ? config.createCompatibleImage(PIECES.length() * deviceSize, deviceSize, Transparency.TRANSLUCENT)
+                : new BufferedImage(PIECES.length() * deviceSize, deviceSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g.setFont(new Font("SansSerif", Font.PLAIN, 1).deriveFont(deviceSize * FONT_RATIO));
+            g.setColor(Color.BLACK);
+            FontMetrics fm = g.getFontMetrics();
+            for (int i = 0; i < GLYPHS.length(); i++) {
+                String glyph = GLYPHS.substring(i, i + 1);
+                int x = i * deviceSize + (deviceSize - fm.stringWidth(glyph)) / 2;
+                int y = (deviceSize - fm.getHeight()) / 2 + fm.getAscent();
+                g.drawString(glyph, x, y);
+            }
+        } finally {
+            g.dispose();
+        }
+        image = atlas;
+        cellSize = deviceSize;
+        this.scale = scale;
+    }
+}
@@ -0,0 +1,172 @@
+import javax.swing.*;
+import java.awt.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Dialog listing the stored games, newest first, read from a
+ * {@link GameStoreView}. The list has fixed row sizes, so Swing only asks for
+ * the rows on screen and each visible row reads one game header; the moves of a
+ * game are decoded when it is selected. Games can be filtered by result and by
+ * date.
+ */
+public class HistoryBrowser {
+
+    private static final String[] RESULT_FILTERS = {"All results", "White wins", "Black wins", "Draw"};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final GameStoreView view;
+    private final GameListModel model = new GameListModel();
+    private final JList<Integer> list = new JList<>(model);
+    private final JTextArea details = new JTextArea(20, 30);
+    private final JComboBox<String> resultFilter = new JComboBox<>(RESULT_FILTERS);
+    private final JTextField fromDate = new JTextField(8);
+    private final JTextField toDate = new JTextField(8);
+    private final JLabel countLabel = new JLabel();
+
+    private HistoryBrowser(GameStoreView view) {
+        this.view = view;
+    }
+
+    /**
+     * Shows the stored games in a modal dialog and returns when it is closed.
+     * @param view the games to show
+     */
+    public static void show(GameStoreView view) {
+        new HistoryBrowser(view).showDialog();
+    }
+
+    private void showDialog() {
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        FontMetrics metrics = list.getFontMetrics(list.getFont());
+        // Fixed sizes keep the list from measuring every row
+        list.setFixedCellHeight(metrics.getHeight() + 4);
+        list.setFixedCellWidth(metrics.stringWidth(rowText(0, 0L, StoredGame.WHITE_WINS, 999, 0)) + 16);
+        list.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                int id = (Integer) value;
+                String text = rowText(id + 1, view.timestamp(id), view.result(id), view.plies(id), view.durationMillis(id));
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        list.addListSelectionListener(e -> {
+            if (e.getValueIsAdjusting()) return;
+            Integer id = list.getSelectedValue();
+            details.setText(id == null ? "" : SaveGame.formatGame(view.read(id)));
+            details.setCaretPosition(0);
+        });
+        details.setEditable(false);
+
+        JButton filterButton = new JButton("Filter");
+        filterButton.addActionListener(e -> applyFilter());
+        fromDate.addActionListener(e -> applyFilter());
+        toDate.addActionListener(e -> applyFilter());
+        resultFilter.addActionListener(e -> applyFilter());
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filters.add(resultFilter);
+        filters.add(new JLabel("From"));
+        filters.add(fromDate);
+        filters.add(new JLabel("To"));
+        filters.add(toDate);
+        filters.add(filterButton);
+        filters.add(countLabel);
+        fromDate.setToolTipText("yyyy-MM-dd");
+        toDate.setToolTipText("yyyy-MM-dd");
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(list), new JScrollPane(details));
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(filters, BorderLayout.NORTH);
+        panel.add(split, BorderLayout.CENTER);
+
+        applyFilter();
+        JDialog dialog = new JDialog((Frame) null, "Game History", true);
+        dialog.setContentPane(panel);
+        dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        dialog.pack();
+        dialog.setLocationRelativeTo(null);
+        dialog.setVisible(true);
+    }
+
+    /**
+     * Shows only the games that match the result and dates entered.
+     */
+    private void applyFilter() {
+        long from, to;
+        try {
+            from = startOfDay(fromDate.getText(), Long.MIN_VALUE, 0);
+            to = startOfDay(toDate.getText(), Long.MAX_VALUE, 1); // Up to the end of that day
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(list, "Dates are written as yyyy-MM-dd.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int result = resultFilter.getSelectedIndex() - 1; // -1 for all results
+        model.setRows(filter(view, result, from, to));
+        countLabel.setText(model.getSize() + " of " + view.size() + " games");
+    }
+
+    /**
+     * Returns the games matching a filter, newest first. Reads only game headers.
+     * @param view the games
+     * @param result result code to keep, or -1 for all
+     * @param from earliest end time to keep, in milliseconds since the epoch
+     * @param to end time before which games are kept
+     * @return the matching game numbers
+     */
+    static int[] filter(GameStoreView view, int result, long from, long to) {
+        int[] rows = new int[view.size()];
+        int count = 0;
+        for (int id = view.size() - 1; id >= 0; id--) {
+            if (result >= 0 && view.result(id) != result) continue;
+            long time = view.timestamp(id);
+            if (time < from || time >= to) continue;
+            rows[count++] = id;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    private static long startOfDay(String text, long none, int daysAfter) {
+        if (text.isBlank()) return none;
+        return LocalDate.parse(text.trim()).plusDays(daysAfter).atStartOfDay(ZoneId.systemDefault())
+                .toInstant().toEpochMilli();
+    }
+
+    private static String rowText(int number, long timestamp, int result, int plies, int durationMillis) {
+        return String.format("%6d  %s  %-10s %4d moves  %s", number, DATE_FORMAT.format(Instant.ofEpochMilli(timestamp)),
+                StoredGame.resultName(result), (plies + 1) / 2, SaveGame.formatDuration(durationMillis));
+    }
+
+    /**
+     * The game numbers shown in the list. Rows hold only the number; the renderer
+     * reads the rest from the view.
+     */
+    private static class GameListModel extends AbstractListModel<Integer> {
+        private int[] rows = new int[0];
+
+        void setRows(int[] rows) {
+            int old = this.rows.length;
+            this.rows = new int[0];
+            if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+            this.rows = rows;
+            if (rows.length > 0) fireIntervalAdded(this, 0, rows.length - 1);
+        }
+
+        @Override
+        public int getSize() {
+            return rows.length;
+        }
+
+        @Override
+        public Integer getElementAt(int index) {
+            return rows[index];
+        }
+    }
+}
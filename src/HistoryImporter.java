@@ -0,0 +1,149 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves the games of an old text history file into the {@link GameStore}.
+ * Runs once: when the store does not exist yet and a history file does. The
+ * file is read line by line and games are written in batches, so large histories
+ * need little memory. The text file itself is left alone.
+ * <p>
+ * The moves of each game are replayed from the start position to find the move
+ * each notation stands for. A game whose notation stops making sense is kept
+ * with the moves up to that point.
+ */
+public class HistoryImporter {
+
+    /** The text history file written by older versions. */
+    public static final Path HISTORY_FILE = Paths.get("history.txt");
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int BATCH_SIZE = 1024;
+
+    private long timestamp;
+    private int result = StoredGame.UNKNOWN;
+    private int durationMillis;
+    private Position position;
+    private boolean movesBroken;
+    private int[] moves = new int[256];
+    private int plies;
+    private final List<StoredGame> batch = new ArrayList<>();
+
+    private HistoryImporter() {
+    }
+
+    /**
+     * Imports the history file in the working directory if the store has not been
+     * created yet. The store is built under temporary names and moved into place
+     * at the end, so an import that fails part way is simply run again next time.
+     * @return the number of games imported
+     * @throws IOException if the history cannot be read or the store written
+     */
+    public static int importIfNeeded() throws IOException {
+        if (GameStore.exists() || !Files.exists(HISTORY_FILE)) return 0;
+        Path data = Paths.get(GameStore.DATA_FILE + ".tmp");
+        Path index = Paths.get(GameStore.INDEX_FILE + ".tmp");
+        Files.deleteIfExists(data);
+        Files.deleteIfExists(index);
+        int games;
+        try (GameStore store = new GameStore(data, index)) {
+            games = importFile(HISTORY_FILE, store);
+        }
+        Files.move(index, GameStore.INDEX_FILE, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(data, GameStore.DATA_FILE, StandardCopyOption.REPLACE_EXISTING); // Last: the data file marks the store as there
+        return games;
+    }
+
+    /**
+     * Adds every game of a text history file to a store.
+     * @param file the history file
+     * @param store the store to add to
+     * @return the number of games imported
+     * @throws IOException if the history cannot be read or the store written
+     */
+    public static int importFile(Path file, GameStore store) throws IOException {
+        HistoryImporter importer = new HistoryImporter();
+        int games = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("=== Game ")) {
+                    if (importer.position != null) {
+                        importer.endGame(store);
+                        games++;
+                    }
+                    importer.startGame(line);
+                } else if (importer.position != null) {
+                    importer.readLine(line);
+                }
+            }
+        }
+        if (importer.position != null) {
+            importer.endGame(store);
+            games++;
+        }
+        if (!importer.batch.isEmpty()) store.appendAll(importer.batch);
+        return games;
+    }
+
+    private void startGame(String line) {
+        String date = line.substring("=== Game ".length()).replace("===", "").trim();
+        try {
+            timestamp = LocalDateTime.parse(date, DATE_FORMAT).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            timestamp = 0;
+        }
+        result = StoredGame.UNKNOWN;
+        durationMillis = 0;
+        position = Position.fromFen(Position.START_FEN);
+        movesBroken = false;
+        plies = 0;
+    }
+
+    private void readLine(String line) {
+        if (line.startsWith("Result: ")) {
+            result = StoredGame.resultOf(line.substring("Result: ".length()));
+        } else if (line.startsWith("Duration: ")) {
+            durationMillis = (int) Math.min(Integer.MAX_VALUE, SaveGame.parseDuration(line.substring("Duration: ".length()).trim()));
+        } else if (!line.isBlank() && Character.isDigit(line.charAt(0))) {
+            // "12. Nf3 , e5"
+            int dot = line.indexOf('.');
+            for (String notation : line.substring(dot + 1).split(",")) readMove(notation.trim());
+        }
+    }
+
+    private void readMove(String notation) {
+        if (movesBroken || notation.isEmpty() || notation.equals("...")) return;
+        int move = San.parse(position, notation);
+        if (move == 0) {
+            movesBroken = true;
+            return;
+        }
+        position.makeMove(move);
+        if (plies == moves.length) moves = Arrays.copyOf(moves, plies * 2);
+        moves[plies++] = move;
+    }
+
+    /**
+     * Adds the game read so far to the batch, writing the batch when it is full.
+     */
+    private void endGame(GameStore store) throws IOException {
+        batch.add(new StoredGame(timestamp, result, durationMillis,
+                StoredGame.encodeMoves(Arrays.copyOf(moves, plies))));
+        if (batch.size() == BATCH_SIZE) {
+            store.appendAll(batch);
+            batch.clear();
+        }
+    }
+}
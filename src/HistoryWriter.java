@@ -0,0 +1,36 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Saves a finished game to the {@link GameStore} when the game ends.
+ * The store is written in the background; then the result and the overall score
+ * are shown and the player returns to the main menu.
+ */
+public class HistoryWriter implements GameListener {
+
+    private final GameService service = new GameService();
+    private final GameController controller;
+    private final Component parent;
+
+    /**
+     * @param controller history the moves are read from
+     * @param parent component whose window is closed after the game
+     */
+    public HistoryWriter(GameController controller, Component parent) {
+        this.controller = controller;
+        this.parent = parent;
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (!(event instanceof GameEvent.GameEnded ended)) return;
+        StoredGame game = SaveGame.finishedGame(ended.result(), controller.getPlayedMoves());
+        service.submit(() -> SaveGame.saveAndScore(game), score -> {
+            JOptionPane.showMessageDialog(parent, ended.message());
+            JOptionPane.showMessageDialog(null, score, "Score", JOptionPane.INFORMATION_MESSAGE);
+            Window window = SwingUtilities.getWindowAncestor(parent);
+            if (window != null) window.dispose();
+            MainMenu.show();
+        });
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * All legal moves of a position, generated once and grouped by origin square.
+ * Selecting a piece, checking a clicked move and testing for the end of the game
+ * all read from it. Indexes of recently seen positions are kept in a small
+ * least-recently-used cache keyed by Zobrist key, so undo and redo find the moves
+ * of positions already visited without generating them again.
+ * Instances are immutable and may be shared between threads.
+ */
+public final class LegalMoveIndex {
+
+    /** Number of positions kept in the cache. */
+    public static final int CACHE_SIZE = 64;
+
+    private static final Map<Long, LegalMoveIndex> CACHE = new LinkedHashMap<>(CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, LegalMoveIndex> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final int[] moves;
+    private final int[] start = new int[65]; // Moves from square s are moves[start[s]] .. moves[start[s + 1] - 1]
+
+    private LegalMoveIndex(Position position) {
+        int[] buffer = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(buffer, 0);
+        // Counting sort by origin square
+        for (int i = 0; i < count; i++) start[Move.from(buffer[i]) + 1]++;
+        for (int s = 0; s < 64; s++) start[s + 1] += start[s];
+        int[] next = start.clone();
+        moves = new int[count];
+        for (int i = 0; i < count; i++) moves[next[Move.from(buffer[i])]++] = buffer[i];
+    }
+
+    /**
+     * Returns the legal moves of a position, from the cache if it was seen recently.
+     * @param position the position; not changed
+     * @return the index of its legal moves
+     */
+    public static LegalMoveIndex of(Position position) {
+        long key = position.getKey();
+        synchronized (CACHE) {
+            LegalMoveIndex cached = CACHE.get(key);
+            if (cached != null) return cached;
+        }
+        LegalMoveIndex index = new LegalMoveIndex(position);
+        synchronized (CACHE) {
+            CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Empties the cache, e.g. when a new game starts.
+     */
+    public static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Returns the number of legal moves.
+     */
+    public int size() {
+        return moves.length;
+    }
+
+    /**
+     * Returns the index of the first move from a square; see {@link #move(int)}.
+     */
+    public int start(int from) {
+        return start[from];
+    }
+
+    /**
+     * Returns the index after the last move from a square.
+     */
+    public int end(int from) {
+        return start[from + 1];
+    }
+
+    /**
+     * Returns a move by its index.
+     */
+    public int move(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Returns the legal target squares of the piece on a square as a bitboard.
+     */
+    public long targets(int from) {
+        long targets = 0;
+        for (int i = start[from]; i < start[from + 1]; i++) targets |= 1L << Move.to(moves[i]);
+        return targets;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values.
+ * Avoids boxing for position-key lookups such as repetition counting.
+ */
+public class LongIntMap {
+
+    private static final int EMPTY_VALUE = 0;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates an empty map.
+     */
+    public LongIntMap() {
+        this(64);
+    }
+
+    /**
+     * Creates an empty map sized for the given number of entries.
+     * @param expected expected number of entries
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value stored for the key, or 0 if there is none.
+     */
+    public int get(long key) {
+        int i = indexOf(key);
+        return used[i] ? values[i] : EMPTY_VALUE;
+    }
+
+    /**
+     * Adds the delta to the value stored for the key. Entries reaching 0 are kept.
+     * @return the new value
+     */
+    public int add(long key, int delta) {
+        int i = indexOf(key);
+        if (!used[i]) {
+            used[i] = true;
+            keys[i] = key;
+            values[i] = delta;
+            if (++size * 2 > keys.length) grow();
+            return delta;
+        }
+        return values[i] += delta;
+    }
+
+    /**
+     * Returns the number of keys in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int i = hash(key) & mask;
+        while (used[i] && keys[i] != key) i = (i + 1) & mask;
+        return i;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int j = indexOf(oldKeys[i]);
+            used[j] = true;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
@@ -1,6 +1,10 @@
+import javax.swing.*;
+import java.io.IOException;
+
 /**
  * Entry point of the chess application.
- * Initializes the game and opens the main menu.
+ * Initializes the game, moves an old text history into the game store and opens
+ * the main menu.
  */
 public class Main {
 
@@ -14,6 +18,13 @@ public class Main {
         MoveAnimations.clearLastMove();
         MoveAnimations.clearCheckHighlight();
 
+        try {
+            HistoryImporter.importIfNeeded();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Cannot import history.txt: " + e.getMessage(), "Error",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+
         MainMenu.show();
     }
 }
@@ -1,21 +1,36 @@
 import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Main menu for the chess application.
  * Provides options to start a new game, view history, view statistics,
- * delete history, or exit the application.
+ * import or export games as PGN, delete history, or exit the application.
  */
 public class MainMenu {
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    /** Background work started from the menu and the game window, shared by all of it. */
+    private static final GameService SERVICE = new GameService();
+
     /**
      * Displays the main menu dialog with options.
      */
     public static void show() {
-        String[] options = {"New Game", "Show History", "Statistics", "Delete History", "Exit"};
+        String[] options = {"New Game", "Play vs Computer", "Show History", "Statistics", "Import PGN", "Export PGN",
+                "Delete History", "Exit"};
         int choice = JOptionPane.showOptionDialog(
                 null,
                 "Chess",
@@ -27,28 +42,42 @@ public class MainMenu {
                 options[0]);
 
         switch (choice) {
-            case 0 -> startGame();
-            case 1 -> showHistory();
-            case 2 -> showStatistics();
-            case 3 -> deleteHistory();
+            case 0 -> startGame(false);
+            case 1 -> startGame(true);
+            case 2 -> showHistory();
+            case 3 -> showStatistics();
+            case 4 -> importPgn();
+            case 5 -> exportPgn();
+            case 6 -> deleteHistory();
             default -> System.exit(0);
         }
     }
 
     /**
-     * Determines if it's White's turn to move based on the game's history index.
-     * @param controller the current game controller
-     * @return true if it's White's turn, false otherwise
+     * Returns the status text for the side to move when it is not in check.
+     * @param chessBoard the board, for the computer opponent
+     * @param whiteToMove true if it's White's turn
+     * @return the status text
      */
-    private static boolean getWhiteToMoveFromBoard(GameController controller) {
-        return controller != null && controller.getHistoryIndex() % 2 == 0;
+    private static String turnStatus(ChessBoardPanel chessBoard, boolean whiteToMove) {
+        ComputerPlayer computer = chessBoard.getComputer();
+        if (computer != null && computer.isWhite() == whiteToMove) return "Computer is thinking...";
+        if (computer != null && computer.getLastResult() != null) {
+            Search.Result last = computer.getLastResult();
+            return String.format("%s to move (computer: depth %d, %d kN/s)",
+                    whiteToMove ? "White" : "Black", last.getDepth(), last.getNodesPerSecond() / 1000);
+        }
+        return whiteToMove ? "White to move" : "Black to move";
     }
 
     /**
      * Starts a new game by initializing UI components and game logic.
+     * @param vsComputer true to play White against the computer
      */
-    private static void startGame() {
+    private static void startGame(boolean vsComputer) {
         DrawRules.reset();
+        TranspositionTable.getInstance().clear();
+        LegalMoveIndex.clearCache();
         MoveAnimations.clearLastMove();
         MoveAnimations.clearCheckHighlight();
 
@@ -62,55 +91,92 @@ public class MainMenu {
 
             GameLog gameLog = new GameLog();
             ChessBoardPanel chessBoard = new ChessBoardPanel(gameLog);
+            if (vsComputer) chessBoard.setComputer(new ComputerPlayer(false, ComputerPlayer.DEFAULT_TIME_MILLIS,
+                    ComputerPlayer.DEFAULT_THREADS));
             Timer timer = new Timer();
 
             final GameController[] controller = new GameController[1];
             controller[0] = new GameController(chessBoard);
 
-            // Swing Timer to update the status label regularly
-            new javax.swing.Timer(300, e -> {
-                String[][] board = chessBoard.getBoard();
-                boolean whiteToMove = getWhiteToMoveFromBoard(controller[0]);
-                SpecialMoves sm = new SpecialMoves(board, whiteToMove, -1, -1);
-                boolean check = sm.isKingInCheck(whiteToMove);
-
-                if (DrawRules.isThreefoldRepetition(board, whiteToMove)) {
-                    statusLabel.setText("Threefold repetition - Draw");
-
-                    statusLabel.setText("Threefold repetition - Draw");
-                } else if (DrawRules.isFiftyMoveRuleDraw()) {
-                    statusLabel.setText("Fifty-move rule - Draw");
-                } else if (check) {
-                    statusLabel.setText((whiteToMove ? "White" : "Black") + " is in check");
-                } else {
-                    statusLabel.setText(whiteToMove ? "White to move" : "Black to move");
+            chessBoard.addGameListener(gameLog);
+            chessBoard.addGameListener(timer);
+            // The status label changes only when something happens in the game.
+            chessBoard.addGameListener(event -> {
+                switch (event) {
+                    case GameEvent.MoveMade m -> statusLabel.setText(turnStatus(chessBoard, !m.whiteMoved()));
+                    case GameEvent.CheckGiven c -> statusLabel.setText((c.whiteInCheck() ? "White" : "Black") + " is in check");
+                    case GameEvent.GameEnded g -> statusLabel.setText(g.message());
+                    case GameEvent.Undone u -> statusLabel.setText(turnStatus(chessBoard, u.whiteToMove()));
+                    case GameEvent.Redone r -> statusLabel.setText(turnStatus(chessBoard, r.whiteToMove()));
+                    case GameEvent.JumpedTo j -> statusLabel.setText(turnStatus(chessBoard, j.whiteToMove()));
                 }
-            }).start();
+            });
+            chessBoard.addGameListener(new HistoryWriter(controller[0], chessBoard));
+            MoveAnimationLayer animations = new MoveAnimationLayer(chessBoard);
+            chessBoard.addGameListener(animations);
 
             JButton drawButton = new JButton("Draw");
             JButton undoButton = new JButton("Undo");
             JButton redoButton = new JButton("Redo");
-
-            undoButton.addActionListener(e -> controller[0].undo());
-            redoButton.addActionListener(e -> controller[0].redo());
+            JButton pgnButton = new JButton("Save PGN");
+            JButton searchButton = new JButton("Search Position");
+
+            undoButton.addActionListener(e -> {
+                ComputerPlayer computer = chessBoard.getComputer();
+                if (computer != null) computer.cancel();
+                controller[0].undo();
+                // Against the computer, take back its reply too so it is the player's turn again.
+                if (chessBoard.isComputerToMove()) controller[0].undo();
+                chessBoard.requestComputerMove();
+            });
+            redoButton.addActionListener(e -> {
+                controller[0].redo();
+                if (chessBoard.isComputerToMove()) controller[0].redo();
+                chessBoard.requestComputerMove();
+            });
+            // Clicking a move in the log shows the position after it.
+            gameLog.setMoveSelectionListener(ply -> {
+                ComputerPlayer computer = chessBoard.getComputer();
+                if (computer != null) computer.cancel();
+                controller[0].seek(ply);
+            });
             drawButton.addActionListener(e -> {
                 int option = JOptionPane.showConfirmDialog(null, "Do you agree to a draw?", "Draw", JOptionPane.YES_NO_OPTION);
                 if (option == JOptionPane.YES_OPTION) {
-                    Timer.stopStatic();
-                    SaveGame.saveToHistory("Draw", gameLog);
-                    JOptionPane.showMessageDialog(null, "The game ended in a draw.");
-                    SaveGame.showStatsAfterGame();
-                    frame.dispose();
-                    MainMenu.show();
+                    chessBoard.finishGame("Draw", "The game ended in a draw.");
                 }
                 MoveAnimations.clearLastMove();
                 MoveAnimations.clearCheckHighlight();
             });
 
+            pgnButton.addActionListener(e -> {
+                JFileChooser chooser = pgnChooser();
+                if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+                String pgn = PgnWriter.currentGame(controller[0].getPlayedMoves(), Timer.getElapsedMillis());
+                Path file = chooser.getSelectedFile().toPath();
+                SERVICE.submit(() -> {
+                    try {
+                        Files.writeString(file, pgn);
+                        return "Game saved.";
+                    } catch (IOException ex) {
+                        return "Error saving the file.";
+                    }
+                }, message -> JOptionPane.showMessageDialog(frame, message));
+            });
+
+            searchButton.addActionListener(e -> {
+                int[] moves = controller[0].getPlayedMoves();
+                SERVICE.submit(() -> searchPosition(moves),
+                        message -> JOptionPane.showMessageDialog(frame, message, "Search Position",
+                                JOptionPane.INFORMATION_MESSAGE));
+            });
+
             JPanel bottomPanel = new JPanel();
             bottomPanel.add(drawButton);
             bottomPanel.add(undoButton);
             bottomPanel.add(redoButton);
+            bottomPanel.add(pgnButton);
+            bottomPanel.add(searchButton);
 
             JPanel panel = new JPanel(new BorderLayout());
             panel.add(statusLabel, BorderLayout.NORTH);
@@ -125,72 +191,196 @@ public class MainMenu {
 
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             frame.setContentPane(panel);
+            frame.setGlassPane(animations);
+            animations.setVisible(true);
             frame.pack();
             frame.setLocationRelativeTo(null);
             frame.setVisible(true);
-            frame.setResizable(false);
         });
     }
 
     /**
-     * Shows the content of the game history file in a scrollable dialog.
+     * Shows the stored games in a dialog that can be filtered by result and date.
      */
     private static void showHistory() {
-        try {
-            String content = Files.readString(Paths.get("history.txt"));
-            JTextArea textArea = new JTextArea(content);
-            textArea.setEditable(false);
-            JScrollPane scrollPane = new JScrollPane(textArea);
-
-            JOptionPane.showMessageDialog(null, scrollPane, "Game History", JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException e) {
+        if (!GameStore.exists()) {
             JOptionPane.showMessageDialog(null, "History file not found.", "Error", JOptionPane.ERROR_MESSAGE);
+            show();
+            return;
+        }
+        try (GameStoreView view = GameStoreView.open()) {
+            HistoryBrowser.show(view);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "History file cannot be read.", "Error", JOptionPane.ERROR_MESSAGE);
         }
         show(); // Return to menu
     }
 
     /**
-     * Calculates and displays overall game statistics from the history file.
+     * Displays overall game statistics from the statistics file, which is kept up
+     * to date as games are saved.
      */
     private static void showStatistics() {
-        try {
-            String content = Files.readString(Paths.get("history.txt"));
-            String[] games = content.split("=== Game ");
-
-            int totalGames = 0, whiteWins = 0, blackWins = 0, draws = 0;
-            long totalMillis = 0;
+        if (!GameStore.exists()) {
+            JOptionPane.showMessageDialog(null, "History file not found.", "Error", JOptionPane.ERROR_MESSAGE);
+            show();
+            return;
+        }
+        try (GameStore store = GameStore.open()) {
+            GameStatistics stats = GameStatistics.of(store, GameStatistics.STATS_FILE);
+
+            StringBuilder msg = new StringBuilder("📊 Game Statistics:\n")
+                    .append("Total games: ").append(stats.getGames()).append("\n")
+                    .append("White wins: ").append(stats.getResultCount(StoredGame.WHITE_WINS)).append("\n")
+                    .append("Black wins: ").append(stats.getResultCount(StoredGame.BLACK_WINS)).append("\n")
+                    .append("Draws: ").append(stats.getResultCount(StoredGame.DRAW)).append("\n")
+                    .append("Total play time: ").append(formatMillis(stats.getTotalMillis())).append("\n")
+                    .append("Average play time: ").append(formatMillis(stats.getAverageMillis())).append("\n")
+                    .append("Game length (moves):");
+            for (int i = 0; i < GameStatistics.BUCKETS; i++) {
+                int from = i * GameStatistics.BUCKET_MOVES;
+                String range = i == GameStatistics.BUCKETS - 1 ? from + "+" : from + "-" + (from + GameStatistics.BUCKET_MOVES - 1);
+                msg.append("\n  ").append(range).append(": ").append(stats.getLengthCount(i));
+            }
 
-            for (String game : games) {
-                if (game.trim().isEmpty()) continue;
-                totalGames++;
+            JOptionPane.showMessageDialog(null, msg.toString(), "Statistics", JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "History file cannot be read.", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        show(); // Return to menu
+    }
 
-                if (game.contains("Result: White wins")) whiteWins++;
-                else if (game.contains("Result: Black wins")) blackWins++;
-                else if (game.contains("Result: Draw")) draws++;
+    /**
+     * Adds the games of a PGN file chosen by the user to the history.
+     */
+    private static void importPgn() {
+        JFileChooser chooser = pgnChooser();
+        if (chooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+            Path file = chooser.getSelectedFile().toPath();
+            runWithProgress("Importing games...", () -> {
+                try (GameStore store = GameStore.open()) {
+                    PgnImporter.Result result = PgnImporter.importFile(file, store);
+                    return result.imported() + " games imported, " + result.skipped() + " skipped.";
+                }
+            });
+        }
+        show(); // Back to menu
+    }
 
-                int i = game.indexOf("Duration: ");
-                if (i != -1) {
-                    String duration = game.substring(i + 10, i + 22); // format 00:00:00:000
-                    totalMillis += parseTime(duration);
+    /**
+     * Writes every stored game to a PGN file chosen by the user.
+     */
+    private static void exportPgn() {
+        if (!GameStore.exists()) {
+            JOptionPane.showMessageDialog(null, "History file not found.", "Error", JOptionPane.ERROR_MESSAGE);
+            show();
+            return;
+        }
+        JFileChooser chooser = pgnChooser();
+        if (chooser.showSaveDialog(null) == JFileChooser.APPROVE_OPTION) {
+            Path file = chooser.getSelectedFile().toPath();
+            runWithProgress("Exporting games...", () -> {
+                try (GameStoreView view = GameStoreView.open()) {
+                    return PgnWriter.exportStore(view, file) + " games exported.";
                 }
-            }
+            });
+        }
+        show(); // Back to menu
+    }
 
-            String msg = "📊 Game Statistics:\n"
-                    + "Total games: " + totalGames + "\n"
-                    + "White wins: " + whiteWins + "\n"
-                    + "Black wins: " + blackWins + "\n"
-                    + "Draws: " + draws + "\n"
-                    + "Total play time: " + formatMillis(totalMillis);
+    /**
+     * Returns a file chooser for PGN files.
+     */
+    private static JFileChooser pgnChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("PGN files", "pgn"));
+        return chooser;
+    }
 
-            JOptionPane.showMessageDialog(null, msg, "Statistics", JOptionPane.INFORMATION_MESSAGE);
+    /**
+     * Runs long file work in the background behind a modal progress dialog, then
+     * shows the message it returns.
+     * @param title text shown while the work runs
+     * @param task the work; returns the message to show
+     */
+    private static void runWithProgress(String title, Callable<String> task) {
+        JProgressBar bar = new JProgressBar();
+        bar.setIndeterminate(true);
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        panel.add(new JLabel(title), BorderLayout.NORTH);
+        panel.add(bar, BorderLayout.CENTER);
+
+        JDialog dialog = new JDialog((Frame) null, title, true);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        dialog.setContentPane(panel);
+        dialog.pack();
+        dialog.setLocationRelativeTo(null);
+        String[] message = new String[1];
+        // Started once the dialog is showing, so the result cannot arrive before it
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                SERVICE.submit(() -> {
+                    try {
+                        return task.call();
+                    } catch (Exception ex) {
+                        return "Failed: " + ex.getMessage();
+                    }
+                }, result -> {
+                    message[0] = result;
+                    dialog.dispose();
+                });
+            }
+        });
+        dialog.setVisible(true);
+        JOptionPane.showMessageDialog(null, message[0]);
+    }
+
+    /**
+     * Looks up the stored games that reached the position after the given moves,
+     * building or updating the position index first if needed. Only does file I/O,
+     * so it can run off the event thread.
+     * @param moves the moves played, from {@link GameController#getPlayedMoves()}
+     * @return the number of games, the moves played next and the latest games
+     */
+    private static String searchPosition(int[] moves) {
+        if (!GameStore.exists()) return "No games are stored yet.";
+        Position position = Position.fromFen(Position.START_FEN);
+        for (int move : moves) position.makeMove(move);
+        try (GameStoreView view = GameStoreView.open();
+             PositionIndex index = PositionIndex.openUpToDate(view, PositionIndex.INDEX_FILE, PositionIndex.LOG_FILE)) {
+            List<PositionIndex.NextMove> next = index.nextMoves(position.getKey());
+            int games = 0;
+            for (PositionIndex.NextMove move : next) games += move.count();
+            if (games == 0) return "No stored game reached this position.";
+
+            StringBuilder text = new StringBuilder();
+            text.append("Reached ").append(games).append(games == 1 ? " time" : " times")
+                    .append(" in ").append(view.size()).append(" stored games.\n\nPlayed next:\n");
+            for (int i = 0; i < Math.min(next.size(), 8); i++) {
+                PositionIndex.NextMove move = next.get(i);
+                String san = move.move() == 0 ? "(game ended)"
+                        : San.toSan(position, StoredGame.decodeMove(position, move.move()));
+                text.append(String.format("  %-12s %d%n", san, move.count()));
+            }
+            text.append("\nLatest games:\n");
+            List<PositionIndex.Hit> hits = index.latest(position.getKey(), 5);
+            for (int i = 0; i < hits.size(); i++) {
+                int id = hits.get(i).game();
+                text.append(String.format("  #%d  %s  %s, move %d%n", id + 1,
+                        DATE_FORMAT.format(Instant.ofEpochMilli(view.timestamp(id))), StoredGame.resultName(view.result(id)),
+                        hits.get(i).ply() / 2 + 1));
+            }
+            return text.toString();
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "History file not found.", "Error", JOptionPane.ERROR_MESSAGE);
+            return "History cannot be searched.";
         }
-        show(); // Return to menu
     }
 
     /**
-     * Deletes the history file after user confirmation.
+     * Deletes the stored games, and the old text history so it is not imported
+     * again, after user confirmation.
      */
     private static void deleteHistory() {
         int confirm = JOptionPane.showConfirmDialog(null,
@@ -200,7 +390,10 @@ public class MainMenu {
 
         if (confirm == JOptionPane.YES_OPTION) {
             try {
-                Files.deleteIfExists(Paths.get("history.txt"));
+                GameStore.delete();
+                Files.deleteIfExists(GameStatistics.STATS_FILE);
+                PositionIndex.delete();
+                Files.deleteIfExists(HistoryImporter.HISTORY_FILE);
                 JOptionPane.showMessageDialog(null, "History deleted.");
             } catch (IOException e) {
                 JOptionPane.showMessageDialog(null, "Error deleting the file.");
@@ -209,21 +402,6 @@ public class MainMenu {
         show(); // Back to menu
     }
 
-    /**
-     * Parses a duration string formatted as "HH:mm:ss:SSS" into milliseconds.
-     * @param text the duration string
-     * @return the duration in milliseconds
-     */
-    private static long parseTime(String text) {
-        String[] p = text.split(":");
-        if (p.length != 4) return 0;
-        long h = Long.parseLong(p[0]);
-        long m = Long.parseLong(p[1]);
-        long s = Long.parseLong(p[2]);
-        long ms = Long.parseLong(p[3]);
-        return h * 3_600_000 + m * 60_000 + s * 1_000 + ms;
-    }
-
     /**
      * Formats milliseconds into a string formatted as "HH:mm:ss".
      * @param ms milliseconds to format
@@ -0,0 +1,69 @@
+/**
+ * Moves packed into a single int so move lists can live in primitive arrays.
+ * Layout: bits 0-5 from square, bits 6-11 to square, bits 12-14 promotion
+ * piece type (0 when none), bits 15-19 flags.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLING = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+    public static final int PROMOTION = 1 << 19;
+
+    private Move() {
+    }
+
+    /**
+     * Packs a move.
+     * @param from origin square
+     * @param to target square
+     * @param promotion promotion piece type, or 0 for none
+     * @param flags combination of the flag constants
+     * @return the packed move
+     */
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | to << 6 | promotion << 12 | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Returns the promotion piece type, or 0 if the move is not a promotion.
+     */
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    /**
+     * Returns the move in coordinate notation, e.g. "e2e4" or "e7e8q".
+     */
+    public static String toString(int move) {
+        String s = Bitboards.squareName(from(move)) + Bitboards.squareName(to(move));
+        return isPromotion(move) ? s + "nbrq".charAt(promotion(move) - Bitboards.KNIGHT) : s;
+    }
+}
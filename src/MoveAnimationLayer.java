@@ -0,0 +1,147 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Slides the moving piece from its square to its target after each move.
+ * Installed as the window's glass pane, it paints only the moving pieces above
+ * the board; the board itself is not rebuilt, it just keeps showing the target
+ * square as it was (with any captured piece) until the piece arrives. Castling
+ * slides the rook too, and a promoted pawn turns into its new piece on arrival.
+ * <p>
+ * Frames are driven by a Swing timer at the display's refresh rate, but each
+ * piece's place is worked out from {@link System#nanoTime()}, so when the event
+ * thread is busy the timer's coalesced ticks just skip frames and the move still
+ * takes the same time. No objects are allocated per frame.
+ */
+public class MoveAnimationLayer extends JComponent implements GameListener {
+
+    private static final long DURATION_NANOS = 200_000_000L;
+    private static final int MAX_PIECES = 2; // King and rook when castling
+
+    private final ChessBoardPanel board;
+    private final GlyphAtlas atlas = new GlyphAtlas();
+    private final javax.swing.Timer timer;
+
+    private final String[] pieces = new String[MAX_PIECES];
+    private final int[] fromX = new int[MAX_PIECES];
+    private final int[] fromY = new int[MAX_PIECES];
+    private final int[] toX = new int[MAX_PIECES];
+    private final int[] toY = new int[MAX_PIECES];
+    private final int[] x = new int[MAX_PIECES];
+    private final int[] y = new int[MAX_PIECES];
+    private int count;
+    private int size;
+    private long startNanos;
+
+    /**
+     * @param board the board whose moves are animated
+     */
+    public MoveAnimationLayer(ChessBoardPanel board) {
+        this.board = board;
+        setOpaque(false);
+        timer = new javax.swing.Timer(Math.max(1, 1000 / refreshRate()), e -> nextFrame());
+        timer.setCoalesce(true);
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (event instanceof GameEvent.MoveMade m) start(m.position());
+        else if (event instanceof GameEvent.Undone || event instanceof GameEvent.Redone
+                || event instanceof GameEvent.JumpedTo) finish();
+    }
+
+    /**
+     * Starts animating the move that led to the snapshot. A running animation is
+     * finished first.
+     */
+    private void start(PositionSnapshot after) {
+        finish();
+        if (!isShowing() || !board.isShowing()) return;
+        int move = after.getLastMove();
+        int fromRow = Bitboards.row(Move.from(move)), fromCol = Bitboards.col(Move.from(move));
+        int toRow = Bitboards.row(Move.to(move)), toCol = Bitboards.col(Move.to(move));
+        String captured = after.getCapturedPiece();
+
+        addPiece(after.getMovedPiece(), fromRow, fromCol, toRow, toCol);
+        if (Move.isEnPassant(move)) {
+            board.overridePiece(toRow, toCol, null);
+            board.overridePiece(fromRow, toCol, captured);
+        } else {
+            board.overridePiece(toRow, toCol, captured);
+        }
+        if (Move.isCastling(move)) {
+            int rookFrom = toCol == 6 ? 7 : 0;
+            int rookTo = toCol == 6 ? 5 : 3;
+            addPiece(after.getMovedPiece().equals("K") ? "R" : "r", fromRow, rookFrom, toRow, rookTo);
+            board.overridePiece(toRow, rookTo, null);
+        }
+        startNanos = System.nanoTime();
+        timer.start();
+    }
+
+    /**
+     * Adds a piece to slide between two squares.
+     */
+    private void addPiece(String piece, int fromRow, int fromCol, int toRow, int toCol) {
+        Rectangle from = SwingUtilities.convertRectangle(board, board.getSquareBounds(fromRow, fromCol), this);
+        Rectangle to = SwingUtilities.convertRectangle(board, board.getSquareBounds(toRow, toCol), this);
+        size = from.width;
+        pieces[count] = piece;
+        fromX[count] = x[count] = from.x;
+        fromY[count] = y[count] = from.y;
+        toX[count] = to.x;
+        toY[count] = to.y;
+        count++;
+    }
+
+    /**
+     * Moves the pieces to where they should be now, repainting only the area they
+     * cover before and after.
+     */
+    private void nextFrame() {
+        long elapsed = System.nanoTime() - startNanos;
+        if (elapsed >= DURATION_NANOS) {
+            finish();
+            return;
+        }
+        double t = (double) elapsed / DURATION_NANOS;
+        t = t * t * (3 - 2 * t); // Ease in and out
+        for (int i = 0; i < count; i++) {
+            int nx = fromX[i] + (int) Math.round((toX[i] - fromX[i]) * t);
+            int ny = fromY[i] + (int) Math.round((toY[i] - fromY[i]) * t);
+            repaint(Math.min(x[i], nx), Math.min(y[i], ny), size + Math.abs(nx - x[i]), size + Math.abs(ny - y[i]));
+            x[i] = nx;
+            y[i] = ny;
+        }
+    }
+
+    /**
+     * Ends the animation at once; the board shows the pieces on their new squares.
+     */
+    private void finish() {
+        if (count == 0) return;
+        timer.stop();
+        for (int i = 0; i < count; i++) {
+            repaint(x[i], y[i], size, size);
+            pieces[i] = null;
+        }
+        count = 0;
+        board.clearPieceOverrides();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        for (int i = 0; i < count; i++) atlas.draw(g2, pieces[i], x[i], y[i], size);
+    }
+
+    /**
+     * Returns the refresh rate of the main screen, or 60 Hz if it is not known.
+     */
+    private static int refreshRate() {
+        if (GraphicsEnvironment.isHeadless()) return 60;
+        int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode().getRefreshRate();
+        return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : rate;
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft (performance test) driver for the rules engine.
+ * Counts the leaf nodes of the legal move tree to a fixed depth, which both
+ * measures move generation speed and verifies it against published node counts.
+ *
+ * Usage: java Perft [fen|startpos] depth [--parallel] [--threads N]
+ */
+public class Perft {
+
+    /**
+     * Command-line entry point. Prints the node count of every root move,
+     * the total node count and the nodes per second.
+     *
+     * @param args FEN or "startpos", depth, and optional --parallel / --threads N
+     */
+    public static void main(String[] args) {
+        String fen = Position.START_FEN;
+        int depth = 5;
+        boolean parallel = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--parallel" -> parallel = true;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        if (positional.size() == 1) {
+            depth = Integer.parseInt(positional.get(0));
+        } else if (positional.size() > 1) {
+            String last = positional.remove(positional.size() - 1);
+            depth = Integer.parseInt(last);
+            String joined = String.join(" ", positional);
+            if (!joined.equals("startpos")) fen = joined;
+        }
+
+        Position position = Position.fromFen(fen);
+        long start = System.nanoTime();
+        List<RootMove> divide = parallel ? divideParallel(position, depth, threads) : divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (RootMove m : divide) {
+            System.out.println(m.getName() + ": " + m.nodes);
+            total += m.nodes;
+        }
+        double seconds = elapsed / 1e9;
+        System.out.println();
+        System.out.println("Moves: " + divide.size());
+        System.out.println("Nodes: " + total);
+        System.out.printf("Time: %.3f s%n", seconds);
+        System.out.printf("NPS: %.0f%n", seconds > 0 ? total / seconds : 0.0);
+    }
+
+    /**
+     * Counts the leaf nodes reachable in exactly the given number of plies.
+     *
+     * @param position position to start from (restored before returning)
+     * @param depth number of plies
+     * @return number of leaf nodes
+     */
+    public static long perft(Position position, int depth) {
+        if (depth == 0) return 1;
+        return perft(position, depth, new int[depth][Position.MAX_MOVES]);
+    }
+
+    /**
+     * Counts leaf nodes using one preallocated move buffer per remaining ply.
+     */
+    private static long perft(Position position, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = position.generateLegalMoves(moves, 0);
+        // Bulk counting: every legal move at the last ply is one leaf.
+        if (depth == 1) return count;
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the node count below every root move.
+     */
+    public static List<RootMove> divide(Position position, int depth) {
+        List<RootMove> result = rootMoves(position);
+        for (RootMove m : result) {
+            position.makeMove(m.move);
+            m.nodes = perft(position, depth - 1);
+            position.unmakeMove();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the node count below every root move, splitting the root moves
+     * across a fork-join pool.
+     */
+    public static List<RootMove> divideParallel(Position position, int depth, int threads) {
+        List<RootMove> moves = rootMoves(position);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<RecursiveTask<Long>> tasks = new ArrayList<>();
+            for (RootMove m : moves) {
+                // Every task walks its own copy of the position with its own buffers.
+                Position next = position.copy();
+                next.makeMove(m.move);
+                RecursiveTask<Long> task = new RecursiveTask<>() {
+                    @Override
+                    protected Long compute() {
+                        return perft(next, depth - 1);
+                    }
+                };
+                tasks.add(task);
+                pool.execute(task);
+            }
+            for (int i = 0; i < moves.size(); i++)
+                moves.get(i).nodes = tasks.get(i).join();
+        } finally {
+            pool.shutdown();
+        }
+        return moves;
+    }
+
+    /**
+     * Lists the legal root moves in generation order.
+     */
+    private static List<RootMove> rootMoves(Position position) {
+        int[] buffer = new int[Position.MAX_MOVES];
+        int count = position.generateLegalMoves(buffer, 0);
+        List<RootMove> moves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) moves.add(new RootMove(buffer[i]));
+        return moves;
+    }
+
+    /**
+     * A root move and the number of leaf nodes below it.
+     */
+    public static class RootMove {
+        final int move;
+        long nodes;
+
+        RootMove(int move) {
+            this.move = move;
+        }
+
+        public String getName() {
+            return Move.toString(move);
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+    }
+}
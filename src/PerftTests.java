@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Perft regression suite for the rules engine.
+ * Node counts are the published values for the standard perft test positions.
+ */
+public class PerftTests {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    /**
+     * Tests the node counts from the starting position.
+     */
+    @Test
+    void testStartPosition() {
+        Position p = Position.fromFen(Position.START_FEN);
+        assertEquals(20, Perft.perft(p, 1));
+        assertEquals(400, Perft.perft(p, 2));
+        assertEquals(8902, Perft.perft(p, 3));
+        assertEquals(197281, Perft.perft(p, 4));
+    }
+
+    /**
+     * Tests "Kiwipete", which exercises castling, en passant and promotions.
+     */
+    @Test
+    void testKiwipete() {
+        Position p = Position.fromFen(KIWIPETE);
+        assertEquals(48, Perft.perft(p, 1));
+        assertEquals(2039, Perft.perft(p, 2));
+        assertEquals(97862, Perft.perft(p, 3));
+    }
+
+    /**
+     * Tests an endgame with discovered checks and en passant pins.
+     */
+    @Test
+    void testPosition3() {
+        Position p = Position.fromFen(POSITION_3);
+        assertEquals(14, Perft.perft(p, 1));
+        assertEquals(191, Perft.perft(p, 2));
+        assertEquals(2812, Perft.perft(p, 3));
+        assertEquals(43238, Perft.perft(p, 4));
+    }
+
+    /**
+     * Tests a position with promotions and castling under attack.
+     */
+    @Test
+    void testPosition4() {
+        Position p = Position.fromFen(POSITION_4);
+        assertEquals(6, Perft.perft(p, 1));
+        assertEquals(264, Perft.perft(p, 2));
+        assertEquals(9467, Perft.perft(p, 3));
+    }
+
+    /**
+     * Tests a position with a promotion capture and king-side castling.
+     */
+    @Test
+    void testPosition5() {
+        Position p = Position.fromFen(POSITION_5);
+        assertEquals(44, Perft.perft(p, 1));
+        assertEquals(1486, Perft.perft(p, 2));
+        assertEquals(62379, Perft.perft(p, 3));
+    }
+
+    /**
+     * Tests that the parallel divide gives the same total as the serial one.
+     */
+    @Test
+    void testParallelDivideMatchesSerial() {
+        Position p = Position.fromFen(KIWIPETE);
+        List<Perft.RootMove> serial = Perft.divide(p, 3);
+        List<Perft.RootMove> parallel = Perft.divideParallel(p, 3, 4);
+        assertEquals(serial.size(), parallel.size());
+        long total = 0;
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getName(), parallel.get(i).getName());
+            assertEquals(serial.get(i).getNodes(), parallel.get(i).getNodes());
+            total += parallel.get(i).getNodes();
+        }
+        assertEquals(97862, total);
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Adds the games of a PGN file to the {@link GameStore}.
+ * <p>
+ * The file is read in chunks of {@value #CHUNK_SIZE} bytes and cut into games
+ * without parsing: a game starts at a tag line ("[") that follows move text,
+ * unless the line is inside a {} comment. The
+ * games are handed out in batches to one parser per core, which replays each
+ * game's moves from SAN to check them and packs them for the store. Batches are
+ * written to the store in file order while later ones are still being parsed;
+ * only a few batches are in flight at once, so memory use does not grow with the
+ * file.
+ * <p>
+ * Games that start from another position, contain an illegal, ambiguous or
+ * unreadable move, or are too long for the store are skipped.
+ */
+public class PgnImporter {
+
+    /** Bytes read from the file at a time. */
+    public static final int CHUNK_SIZE = 1 << 22;
+    /** Games per parsing task. */
+    public static final int BATCH_SIZE = 256;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    /**
+     * Counts of an import.
+     * @param imported games added to the store
+     * @param skipped games that could not be read
+     */
+    public record Result(int imported, int skipped) {
+    }
+
+    private final GameStore store;
+    private final ExecutorService parsers;
+    private final int maxPending;
+    private final ArrayDeque<Future<List<StoredGame>>> pending = new ArrayDeque<>();
+    private List<String> batch = new ArrayList<>(BATCH_SIZE);
+    private int imported;
+    private int skipped;
+
+    private PgnImporter(GameStore store, int threads) {
+        this.store = store;
+        this.parsers = Executors.newFixedThreadPool(threads);
+        this.maxPending = threads * 2;
+    }
+
+    /**
+     * Imports a PGN file using one parser per core.
+     * @param file the PGN file
+     * @param store the store to add the games to
+     * @return how many games were imported and skipped
+     * @throws IOException if the file cannot be read or the store written
+     */
+    public static Result importFile(Path file, GameStore store) throws IOException {
+        return importFile(file, store, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Imports a PGN file.
+     * @param file the PGN file
+     * @param store the store to add the games to
+     * @param threads number of parser threads
+     * @return how many games were imported and skipped
+     * @throws IOException if the file cannot be read or the store written
+     */
+    public static Result importFile(Path file, GameStore store, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        PgnImporter importer = new PgnImporter(store, threads);
+        try {
+            importer.read(file);
+            while (!importer.pending.isEmpty()) importer.writeOldest();
+        } finally {
+            importer.parsers.shutdownNow();
+        }
+        return new Result(importer.imported, importer.skipped);
+    }
+
+    /**
+     * Reads the file chunk by chunk and cuts it into games.
+     */
+    private void read(Path file) throws IOException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int length = 0; // Bytes in the buffer; the current game starts at 0
+        int scan = 0; // Next byte to look at
+        boolean lineStart = true;
+        boolean inMoves = false;
+        boolean inTag = false; // In a tag line, where { and ; may be part of a value
+        boolean inComment = false; // In a {} comment, which may span lines
+        boolean inLineComment = false; // After ; up to the end of the line
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (true) {
+                if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2); // A huge game
+                int read = channel.read(ByteBuffer.wrap(buffer, length, buffer.length - length));
+                if (read < 0) break;
+                length += read;
+
+                int gameStart = 0;
+                for (; scan < length; scan++) {
+                    byte b = buffer[scan];
+                    if (inComment) {
+                        if (b == '}') inComment = false;
+                    } else {
+                        if (lineStart) {
+                            if (b == '[') {
+                                if (inMoves && scan > gameStart) {
+                                    addGame(new String(buffer, gameStart, scan - gameStart, StandardCharsets.ISO_8859_1));
+                                    gameStart = scan;
+                                }
+                                inMoves = false;
+                                inTag = true;
+                            } else if (b > ' ') {
+                                inMoves = true;
+                            }
+                        }
+                        if (!inTag && !inLineComment) {
+                            if (b == '{') inComment = true;
+                            else if (b == ';') inLineComment = true;
+                        }
+                    }
+                    if (b == '\n') {
+                        inTag = false;
+                        inLineComment = false;
+                    }
+                    lineStart = b == '\n';
+                }
+                // Keep the unfinished game at the start of the buffer
+                System.arraycopy(buffer, gameStart, buffer, 0, length - gameStart);
+                length -= gameStart;
+                scan -= gameStart;
+            }
+        }
+        if (length > 0) addGame(new String(buffer, 0, length, StandardCharsets.ISO_8859_1));
+        if (!batch.isEmpty()) submitBatch();
+    }
+
+    private void addGame(String text) throws IOException {
+        if (text.isBlank()) return;
+        batch.add(text);
+        if (batch.size() == BATCH_SIZE) submitBatch();
+    }
+
+    /**
+     * Hands the batch to a parser, first writing finished batches if too many are
+     * waiting.
+     */
+    private void submitBatch() throws IOException {
+        List<String> games = batch;
+        batch = new ArrayList<>(BATCH_SIZE);
+        while (pending.size() >= maxPending) writeOldest();
+        pending.add(parsers.submit(() -> {
+            List<StoredGame> parsed = new ArrayList<>(games.size());
+            int[] buffer = new int[Position.MAX_MOVES];
+            for (String game : games) {
+                try {
+                    parsed.add(parseGame(game, buffer));
+                } catch (RuntimeException e) {
+                    parsed.add(null); // Skip a game the parser cannot cope with rather than the file
+                }
+            }
+            return parsed;
+        }));
+    }
+
+    /**
+     * Waits for the oldest batch and adds its games to the store.
+     */
+    private void writeOldest() throws IOException {
+        List<StoredGame> parsed;
+        try {
+            parsed = pending.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PGN import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("PGN import failed", e.getCause());
+        }
+        List<StoredGame> games = new ArrayList<>(parsed.size());
+        for (StoredGame game : parsed) {
+            if (game == null) skipped++;
+            else games.add(game);
+        }
+        if (!games.isEmpty()) store.appendAll(games);
+        imported += games.size();
+    }
+
+    /**
+     * Reads one game: its tags, then its moves checked by replaying them.
+     * @param text the game's text, tags and move text
+     * @param buffer scratch buffer for move generation
+     * @return the game, or null if it cannot be stored
+     */
+    static StoredGame parseGame(String text, int[] buffer) {
+        String result = "*", date = null, time = null, duration = null;
+        Position position = Position.fromFen(Position.START_FEN);
+        int[] moves = new int[128];
+        int plies = 0;
+        boolean anyMoves = false;
+
+        int i = 0, n = text.length();
+        int depth = 0; // Nesting of variations, which are skipped
+        while (i < n) {
+            char c = text.charAt(i);
+            if (c <= ' ') {
+                i++;
+            } else if (c == '[' && depth == 0 && !anyMoves) {
+                // [Name "Value"], where the value may hold \" and ]
+                int quote = text.indexOf('"', i);
+                int close = quote + 1;
+                while (quote >= 0 && close < n && text.charAt(close) != '"') close += text.charAt(close) == '\\' ? 2 : 1;
+                int end = quote < 0 || close >= n ? -1 : text.indexOf(']', close);
+                if (end < 0) return null;
+                String value = text.substring(quote + 1, close);
+                switch (text.substring(i + 1, quote).trim()) {
+                    case "Result" -> result = value;
+                    case "Date" -> date = value;
+                    case "Time" -> time = value;
+                    case "Duration" -> duration = value;
+                    case "FEN" -> {
+                        if (!value.trim().equals(Position.START_FEN)) return null;
+                    }
+                    default -> {
+                    }
+                }
+                i = end + 1;
+            } else if (c == '{') {
+                int end = text.indexOf('}', i);
+                i = end < 0 ? n : end + 1;
+            } else if (c == ';' || c == '%') {
+                int end = text.indexOf('\n', i);
+                i = end < 0 ? n : end + 1;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+                i++;
+            } else if ("{}()[];".indexOf(c) >= 0) {
+                i++; // A stray delimiter, e.g. "}" after the moves or "[" inside them
+            } else {
+                int start = i;
+                while (i < n && text.charAt(i) > ' ' && "{}()[];".indexOf(text.charAt(i)) < 0) i++;
+                if (depth > 0) continue;
+                String token = text.substring(start, i);
+                anyMoves = true;
+                if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*")) {
+                    result = token;
+                    break;
+                }
+                if (token.charAt(0) == '$' || isAnnotation(token)) continue; // Annotation glyph or "!?"
+                int dot = token.lastIndexOf('.');
+                if (dot >= 0) {
+                    // "12." or "12..." before a move, or "12.e4" without a space
+                    if (!Character.isDigit(token.charAt(0))) return null;
+                    token = token.substring(dot + 1);
+                    if (token.isEmpty()) continue;
+                }
+                int move = San.parse(position, token, buffer, true);
+                if (move == 0) return null;
+                position.makeMove(move);
+                if (plies == moves.length) moves = Arrays.copyOf(moves, plies * 2);
+                moves[plies++] = move;
+            }
+        }
+        if (plies > 0xFFFF) return null;
+
+        int code = Arrays.asList(PgnWriter.RESULT_TOKENS).indexOf(result.trim());
+        return new StoredGame(timestamp(date, time), code < 0 ? StoredGame.UNKNOWN : code,
+                duration == null ? 0 : (int) Math.min(Integer.MAX_VALUE, SaveGame.parseDuration(duration)),
+                StoredGame.encodeMoves(Arrays.copyOf(moves, plies)));
+    }
+
+    /**
+     * Returns true if a token is only move annotation marks, e.g. "!?" or "??".
+     */
+    private static boolean isAnnotation(String token) {
+        for (int i = 0; i < token.length(); i++)
+            if (token.charAt(i) != '!' && token.charAt(i) != '?') return false;
+        return true;
+    }
+
+    /**
+     * Returns the time of a game from its Date and Time tags, or 0 if the date is
+     * not known.
+     */
+    private static long timestamp(String date, String time) {
+        if (date == null) return 0;
+        try {
+            LocalTime clock = LocalTime.MIDNIGHT;
+            if (time != null) {
+                try {
+                    clock = LocalTime.parse(time.trim());
+                } catch (DateTimeParseException e) {
+                    // Keep midnight
+                }
+            }
+            return LocalDate.parse(date.trim(), DATE_FORMAT).atTime(clock)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+}
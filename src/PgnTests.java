@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for reading and writing games in PGN.
+ */
+public class PgnTests {
+
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("pgn");
+    }
+
+    /**
+     * Tests SAN output for disambiguation, castling, promotion, check and mate.
+     */
+    @Test
+    void testSanWriting() {
+        Position position = Position.fromFen("r3k2r/1P6/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals("O-O", San.toSan(position, San.parse(position, "O-O")));
+        assertEquals("Rd1", San.toSan(position, San.parse(position, "Rad1"))); // The king blocks the other rook
+        assertEquals("bxa8=N", San.toSan(position, San.parse(position, "bxa8=N")));
+        assertEquals("b8=Q+", San.toSan(position, San.parse(position, "b8")));
+        assertEquals("Rxa8+", San.toSan(position, San.parse(position, "Rxa8")));
+
+        Position knights = Position.fromFen("k7/8/8/1N3N2/8/1N6/8/K7 w - - 0 1");
+        assertEquals("N3d4", San.toSan(knights, San.parse(knights, "N3d4")));
+        assertEquals("Nfd4", San.toSan(knights, San.parse(knights, "Nfd4")));
+        assertEquals("Nb5d4", San.toSan(knights, San.parse(knights, "Nb5d4")));
+
+        Position mate = Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", San.toSan(mate, San.parse(mate, "Ra8")));
+    }
+
+    /**
+     * Tests that comments, variations, annotations and move numbers are skipped,
+     * a comment line starting with "[" does not start a new game, and illegal
+     * games are counted but not stored.
+     */
+    @Test
+    void testImportSkipsAnnotationsAndIllegalGames() throws IOException {
+        Path file = dir.resolve("games.pgn");
+        Files.writeString(file, """
+                [Event "Test"]
+                [Site "A \\"quoted\\" ] site"]
+                [Date "2024.03.01"]
+                [Result "1-0"]
+
+                1. e4 {best by test,
+                [but see below]} e5 2. Nf3 (2. f4 exf4) 2... Nc6 3. Bb5 $1 a6 ; Morphy {
+                4. Ba4 Nf6 5. O-O! Be7 1-0
+
+                [Event "Illegal"]
+                [Result "*"]
+
+                1. e4 e5 2. Ke3 *
+
+                [Event "No date"]
+                [Result "1/2-1/2"]
+
+                1.d4 d5 1/2-1/2
+                """);
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            PgnImporter.Result result = PgnImporter.importFile(file, store, 2);
+            assertEquals(2, result.imported());
+            assertEquals(1, result.skipped());
+            StoredGame game = store.read(0);
+            assertEquals(StoredGame.WHITE_WINS, game.result());
+            assertEquals(10, game.plies());
+            assertTrue(game.timestamp() > 0);
+            assertEquals(StoredGame.DRAW, store.read(1).result());
+            assertEquals(0, store.read(1).timestamp());
+        }
+    }
+
+    /**
+     * Tests that stray delimiters and separate annotation marks do not stop an
+     * import, and that ambiguous moves and bad promotions reject their game.
+     */
+    @Test
+    void testImportMalformedAndAmbiguousMoves() throws IOException {
+        int[] buffer = new int[Position.MAX_MOVES];
+        assertEquals(3, PgnImporter.parseGame("1. e4 e5 } 2. Nf3 *", buffer).plies());
+        assertEquals(3, PgnImporter.parseGame("1. e4 e5 (1... c5 ]) 2. Nf3 *", buffer).plies());
+        assertEquals(2, PgnImporter.parseGame("1. e4 !? e5 ?? *", buffer).plies());
+        assertNull(PgnImporter.parseGame("1. d4 d5 2. Nf3 Nf6 3. Nd2 *", buffer)); // Nb1 or Nf3
+        assertEquals(5, PgnImporter.parseGame("1. d4 d5 2. Nf3 Nf6 3. Nbd2 *", buffer).plies());
+
+        Position promotion = Position.fromFen("k7/4P3/8/8/8/8/8/K7 w - - 0 1");
+        assertEquals(0, San.parse(promotion, "e8=P", buffer, true));
+        assertEquals(0, San.parse(promotion, "e8", buffer, true));
+        assertEquals(Bitboards.KNIGHT, Move.promotion(San.parse(promotion, "e8=N", buffer, true)));
+        assertEquals(0, San.parse(Position.fromFen(Position.START_FEN), "e4=Q", buffer, true));
+
+        Path file = dir.resolve("odd.pgn");
+        Files.writeString(file, """
+                [Event "Stray"]
+
+                1. e4 e5 } 2. Nf3 *
+
+                [Event "Variation"]
+
+                1. e4 e5 (1... c5 ]) 2. Nf3 *
+
+                [Event "Ambiguous"]
+
+                1. d4 d5 2. Nf3 Nf6 3. Nd2 *
+
+                [Event "Marks"]
+
+                1. e4 !? e5 *
+                """);
+        try (GameStore store = new GameStore(dir.resolve("g.dat"), dir.resolve("g.idx"))) {
+            assertEquals(new PgnImporter.Result(3, 1), PgnImporter.importFile(file, store, 2));
+        }
+    }
+
+    /**
+     * Tests that games written as PGN are read back the same, across many batches
+     * and parser threads.
+     */
+    @Test
+    void testExportImportRoundTrip() throws IOException {
+        Position position = Position.fromFen(Position.START_FEN);
+        int[] buffer = new int[Position.MAX_MOVES];
+        short[] moves = new short[120];
+        Random random = new Random(7);
+        for (int i = 0; i < moves.length; i++) {
+            int count = position.generateLegalMoves(buffer, 0);
+            if (count == 0) {
+                moves = Arrays.copyOf(moves, i);
+                break;
+            }
+            int move = buffer[random.nextInt(count)];
+            moves[i] = StoredGame.encodeMove(move);
+            position.makeMove(move);
+        }
+
+        int games = PgnImporter.BATCH_SIZE * 3 + 5;
+        try (GameStore store = new GameStore(dir.resolve("a.dat"), dir.resolve("a.idx"))) {
+            for (int i = 0; i < games; i++)
+                store.append(new StoredGame(1_700_000_000_000L + i * 1000L, i % 4, i, Arrays.copyOf(moves, i % moves.length)));
+        }
+        Path file = dir.resolve("all.pgn");
+        try (GameStoreView view = GameStoreView.open(dir.resolve("a.dat"), dir.resolve("a.idx"))) {
+            assertEquals(games, PgnWriter.exportStore(view, file));
+        }
+
+        try (GameStore store = new GameStore(dir.resolve("b.dat"), dir.resolve("b.idx"))) {
+            assertEquals(new PgnImporter.Result(games, 0), PgnImporter.importFile(file, store, 3));
+            for (int i = 0; i < games; i += 37) {
+                StoredGame game = store.read(i);
+                assertEquals(i % 4, game.result());
+                assertEquals(i, game.durationMillis());
+                assertEquals(1_700_000_000_000L + i * 1000L, game.timestamp());
+                assertArrayEquals(Arrays.copyOf(moves, i % moves.length), game.moves());
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes games in Portable Game Notation (PGN), the text format other chess
+ * programs read. Each game gets the seven standard tags, its time, ply count and
+ * duration, and its moves in SAN wrapped at 80 columns.
+ */
+public final class PgnWriter {
+
+    /** Result tokens of PGN, indexed by the result codes of {@link StoredGame}. */
+    public static final String[] RESULT_TOKENS = {"1-0", "0-1", "1/2-1/2", "*"};
+
+    private static final int LINE_WIDTH = 79;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private PgnWriter() {
+    }
+
+    /**
+     * Writes one game followed by a blank line.
+     * @param out where to write
+     * @param game the game
+     * @throws IOException if writing fails
+     */
+    public static void writeGame(Appendable out, StoredGame game) throws IOException {
+        String result = RESULT_TOKENS[game.result()];
+        tag(out, "Event", "Casual game");
+        tag(out, "Site", "?");
+        if (game.timestamp() == 0) {
+            tag(out, "Date", "????.??.??");
+        } else {
+            ZonedDateTime time = Instant.ofEpochMilli(game.timestamp()).atZone(ZoneId.systemDefault());
+            tag(out, "Date", DATE_FORMAT.format(time));
+            tag(out, "Time", TIME_FORMAT.format(time));
+        }
+        tag(out, "Round", "-");
+        tag(out, "White", "?");
+        tag(out, "Black", "?");
+        tag(out, "Result", result);
+        tag(out, "PlyCount", Integer.toString(game.plies()));
+        tag(out, "Duration", SaveGame.formatDuration(game.durationMillis()));
+        out.append('\n');
+
+        Position position = Position.fromFen(Position.START_FEN);
+        int column = 0;
+        for (int i = 0; i < game.plies(); i++) {
+            int move = StoredGame.decodeMove(position, game.moves()[i]);
+            String token = i % 2 == 0 ? (i / 2 + 1) + ". " + San.toSan(position, move) : San.toSan(position, move);
+            column = word(out, token, column);
+            position.makeMove(move);
+        }
+        word(out, result, column);
+        out.append("\n\n");
+    }
+
+    /**
+     * Returns the moves played in the current game as PGN, e.g. to save it from the
+     * game window. The result is "*", as the game is not over.
+     * @param moves the moves, from {@link GameController#getPlayedMoves()}
+     * @param durationMillis time played so far
+     * @return the game in PGN
+     */
+    public static String currentGame(int[] moves, long durationMillis) {
+        StringBuilder pgn = new StringBuilder();
+        try {
+            writeGame(pgn, new StoredGame(System.currentTimeMillis(), StoredGame.UNKNOWN,
+                    (int) Math.min(Integer.MAX_VALUE, durationMillis), StoredGame.encodeMoves(moves)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a StringBuilder
+        }
+        return pgn.toString();
+    }
+
+    /**
+     * Writes every game of a store to a file, oldest first.
+     * @param view the games
+     * @param file the PGN file; replaced if it exists
+     * @return the number of games written
+     * @throws IOException if the file cannot be written
+     */
+    public static int exportStore(GameStoreView view, Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int id = 0; id < view.size(); id++) writeGame(out, view.read(id));
+        }
+        return view.size();
+    }
+
+    private static void tag(Appendable out, String name, String value) throws IOException {
+        out.append('[').append(name).append(" \"").append(value).append("\"]\n");
+    }
+
+    /**
+     * Writes a word of the move text, starting a new line when it would not fit.
+     * @return the column after the word
+     */
+    private static int word(Appendable out, String word, int column) throws IOException {
+        if (column > 0 && column + 1 + word.length() > LINE_WIDTH) {
+            out.append('\n');
+            column = 0;
+        } else if (column > 0) {
+            out.append(' ');
+            column++;
+        }
+        out.append(word);
+        return column + word.length();
+    }
+}
@@ -0,0 +1,855 @@
+import java.util.Arrays;
+
+import static java.lang.Long.numberOfTrailingZeros;
+
+/**
+ * Mutable bitboard representation of a chess position.
+ * Holds one 64-bit word per piece type and colour plus a square-to-piece lookup.
+ * Moves are played and taken back in place through an undo stack.
+ */
+public final class Position {
+
+    /** Marker for an empty square in the piece lookup. */
+    public static final int EMPTY = -1;
+
+    /** Upper bound on the number of legal moves in any position; sizes move buffers. */
+    public static final int MAX_MOVES = 256;
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+
+    /** Standard starting position in FEN. */
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    /** Castling rights kept when a piece moves from or to the square. */
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] = 15 & ~BLACK_QUEEN_SIDE;
+        CASTLING_MASK[4] = 15 & ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[7] = 15 & ~BLACK_KING_SIDE;
+        CASTLING_MASK[56] = 15 & ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[60] = 15 & ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[63] = 15 & ~WHITE_KING_SIDE;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colours = new long[2];
+    private final int[] squares = new int[64];
+    private boolean whiteToMove;
+    private int enPassantSquare = -1;
+    private int castlingRights;
+    private int halfmoveClock;
+    private long key;
+    private long[] undoStack = new long[64];
+    private long[] keyStack = new long[64];
+    private int undoSize;
+    /** Move buffer for the square-based queries, so they do not allocate. */
+    private final int[] scratch = new int[MAX_MOVES];
+
+    private Position() {
+        Arrays.fill(squares, EMPTY);
+    }
+
+    /**
+     * Builds a position from the String[][] board used by the UI.
+     * @param board 8x8 board with piece letters, upper case for white
+     * @param whiteToMove true if white is to move
+     * @param enPassantRow row of the en passant target square, or -1
+     * @param enPassantCol column of the en passant target square, or -1
+     * @return a new position
+     */
+    public static Position fromBoard(String[][] board, boolean whiteToMove, int enPassantRow, int enPassantCol) {
+        Position p = new Position();
+        for (int r = 0; r < 8; r++) {
+            for (int c = 0; c < 8; c++) {
+                String s = board[r][c];
+                if (s == null) continue;
+                int piece = PIECE_CHARS.indexOf(s);
+                if (piece >= 0) p.put(piece, Bitboards.square(r, c));
+            }
+        }
+        p.whiteToMove = whiteToMove;
+        if (enPassantRow >= 0 && enPassantCol >= 0)
+            p.enPassantSquare = Bitboards.square(enPassantRow, enPassantCol);
+        // The UI board does not track castling rights, so allow castling whenever
+        // king and rook still stand on their home squares.
+        p.castlingRights = p.homeSquareCastlingRights();
+        p.key = p.computeKey();
+        return p;
+    }
+
+    /**
+     * Builds a position from a FEN string.
+     * @param fen position in Forsyth-Edwards notation
+     * @return a new position
+     * @throws IllegalArgumentException if the FEN cannot be parsed
+     */
+    public static Position fromFen(String fen) {
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 2) throw new IllegalArgumentException("Invalid FEN: " + fen);
+        Position p = new Position();
+        int r = 0, c = 0;
+        for (char ch : parts[0].toCharArray()) {
+            if (ch == '/') {
+                r++;
+                c = 0;
+            } else if (Character.isDigit(ch)) {
+                c += ch - '0';
+            } else {
+                int piece = PIECE_CHARS.indexOf(ch);
+                if (piece < 0 || r > 7 || c > 7) throw new IllegalArgumentException("Invalid FEN: " + fen);
+                p.put(piece, Bitboards.square(r, c++));
+            }
+        }
+        p.whiteToMove = parts[1].equals("w");
+        if (parts.length > 2) {
+            for (char ch : parts[2].toCharArray()) {
+                switch (ch) {
+                    case 'K' -> p.castlingRights |= WHITE_KING_SIDE;
+                    case 'Q' -> p.castlingRights |= WHITE_QUEEN_SIDE;
+                    case 'k' -> p.castlingRights |= BLACK_KING_SIDE;
+                    case 'q' -> p.castlingRights |= BLACK_QUEEN_SIDE;
+                    default -> { }
+                }
+            }
+        }
+        if (parts.length > 3 && !parts[3].equals("-"))
+            p.enPassantSquare = Bitboards.square('8' - parts[3].charAt(1), parts[3].charAt(0) - 'a');
+        if (parts.length > 4)
+            p.halfmoveClock = Integer.parseInt(parts[4]);
+        p.key = p.computeKey();
+        return p;
+    }
+
+    /**
+     * Returns the castling rights implied by kings and rooks on their home squares.
+     */
+    private int homeSquareCastlingRights() {
+        int rights = 0;
+        int whiteRook = piece(Bitboards.WHITE, Bitboards.ROOK);
+        int blackRook = piece(Bitboards.BLACK, Bitboards.ROOK);
+        if (squares[60] == piece(Bitboards.WHITE, Bitboards.KING)) {
+            if (squares[63] == whiteRook) rights |= WHITE_KING_SIDE;
+            if (squares[56] == whiteRook) rights |= WHITE_QUEEN_SIDE;
+        }
+        if (squares[4] == piece(Bitboards.BLACK, Bitboards.KING)) {
+            if (squares[7] == blackRook) rights |= BLACK_KING_SIDE;
+            if (squares[0] == blackRook) rights |= BLACK_QUEEN_SIDE;
+        }
+        return rights;
+    }
+
+    /**
+     * Returns a copy of this position.
+     */
+    public Position copy() {
+        Position p = copyWithoutHistory();
+        p.undoStack = undoStack.clone();
+        p.keyStack = keyStack.clone();
+        p.undoSize = undoSize;
+        return p;
+    }
+
+    /**
+     * Returns a copy of this position whose undo stack keeps only the moves since
+     * the last capture or pawn move. That is all {@link #isRepetition()} looks at,
+     * so a search on the copy still sees repetitions of the game, but the copy
+     * costs the same however long the game is.
+     */
+    public Position copyWithRecentHistory() {
+        Position p = copyWithoutHistory();
+        int n = Math.min(undoSize, halfmoveClock);
+        p.undoStack = new long[Math.max(64, n * 2)];
+        p.keyStack = new long[p.undoStack.length];
+        System.arraycopy(undoStack, undoSize - n, p.undoStack, 0, n);
+        System.arraycopy(keyStack, undoSize - n, p.keyStack, 0, n);
+        p.undoSize = n;
+        return p;
+    }
+
+    /**
+     * Returns a copy of this position with an empty undo stack. It cannot take back
+     * the moves that led here, but its size does not grow with the game.
+     */
+    public Position copyWithoutHistory() {
+        Position p = new Position();
+        System.arraycopy(pieces, 0, p.pieces, 0, 12);
+        System.arraycopy(colours, 0, p.colours, 0, 2);
+        System.arraycopy(squares, 0, p.squares, 0, 64);
+        p.whiteToMove = whiteToMove;
+        p.enPassantSquare = enPassantSquare;
+        p.castlingRights = castlingRights;
+        p.halfmoveClock = halfmoveClock;
+        p.key = key;
+        return p;
+    }
+
+    /**
+     * Converts the position back to the String[][] board used by the UI.
+     */
+    public String[][] toBoard() {
+        String[][] board = new String[8][8];
+        for (int sq = 0; sq < 64; sq++)
+            if (squares[sq] != EMPTY)
+                board[Bitboards.row(sq)][Bitboards.col(sq)] = pieceToString(squares[sq]);
+        return board;
+    }
+
+    /**
+     * Writes the position into an existing String[][] board used by the UI.
+     */
+    public void copyToBoard(String[][] board) {
+        for (int sq = 0; sq < 64; sq++)
+            board[Bitboards.row(sq)][Bitboards.col(sq)] = squares[sq] == EMPTY ? null : pieceToString(squares[sq]);
+    }
+
+    /**
+     * Returns the piece letter for a piece index, upper case for white.
+     */
+    public static String pieceToString(int piece) {
+        return String.valueOf(PIECE_CHARS.charAt(piece));
+    }
+
+    /**
+     * Returns the piece index for the given colour and type.
+     */
+    public static int piece(int colour, int type) {
+        return colour * 6 + type;
+    }
+
+    /**
+     * Returns the type (pawn..king) of a piece index.
+     */
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    /**
+     * Returns the colour of a piece index.
+     */
+    public static int colourOf(int piece) {
+        return piece / 6;
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Returns the Zobrist key of the position, including side to move,
+     * castling rights and a capturable en passant file.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Computes the Zobrist key from scratch.
+     */
+    private long computeKey() {
+        long k = 0L;
+        for (int sq = 0; sq < 64; sq++)
+            if (squares[sq] != EMPTY) k ^= Zobrist.PIECE_SQUARE[squares[sq]][sq];
+        if (!whiteToMove) k ^= Zobrist.BLACK_TO_MOVE;
+        return k ^ Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+    }
+
+    /**
+     * Returns the en passant part of the key. The file only counts when a pawn
+     * of the side to move can actually capture, so otherwise identical positions
+     * hash the same for repetition detection.
+     */
+    private long enPassantKey() {
+        if (enPassantSquare < 0) return 0L;
+        int us = whiteToMove ? Bitboards.WHITE : Bitboards.BLACK;
+        long capturers = Bitboards.PAWN_ATTACKS[us ^ 1][enPassantSquare] & pieces[piece(us, Bitboards.PAWN)];
+        return capturers == 0 ? 0L : Zobrist.EN_PASSANT_FILE[Bitboards.col(enPassantSquare)];
+    }
+
+    /**
+     * Returns the piece index on the square, or EMPTY.
+     */
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Returns the bitboard of all pieces of the given colour.
+     */
+    public long occupancy(int colour) {
+        return colours[colour];
+    }
+
+    /**
+     * Returns the bitboard of all pieces.
+     */
+    public long occupancy() {
+        return colours[0] | colours[1];
+    }
+
+    /**
+     * Returns the bitboard of the given piece index.
+     */
+    public long bitboard(int piece) {
+        return pieces[piece];
+    }
+
+    /**
+     * Returns the square of the king of the given colour, or -1 if there is none.
+     */
+    public int kingSquare(boolean white) {
+        long king = pieces[piece(white ? Bitboards.WHITE : Bitboards.BLACK, Bitboards.KING)];
+        return king == 0 ? -1 : numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Returns the pieces of the given side attacking the square, as a bitboard.
+     * Works outward from the target: slider rays are cast from the square and
+     * intersected with the enemy sliders, and the knight, king and pawn patterns
+     * are looked up from the square itself.
+     * @param square target square
+     * @param byWhite side whose attackers are wanted
+     * @param occupied occupancy used to block slider rays
+     * @return bitboard of attacking pieces
+     */
+    public long attackersTo(int square, boolean byWhite, long occupied) {
+        int colour = byWhite ? Bitboards.WHITE : Bitboards.BLACK;
+        long queens = pieces[piece(colour, Bitboards.QUEEN)];
+        long rooksQueens = pieces[piece(colour, Bitboards.ROOK)] | queens;
+        long bishopsQueens = pieces[piece(colour, Bitboards.BISHOP)] | queens;
+        // A pawn of the attacking colour hits the square from where a pawn of
+        // the other colour on the square would capture.
+        return (Bitboards.PAWN_ATTACKS[colour ^ 1][square] & pieces[piece(colour, Bitboards.PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[square] & pieces[piece(colour, Bitboards.KNIGHT)])
+                | (Bitboards.KING_ATTACKS[square] & pieces[piece(colour, Bitboards.KING)])
+                | (Bitboards.rookAttacks(square, occupied) & rooksQueens)
+                | (Bitboards.bishopAttacks(square, occupied) & bishopsQueens);
+    }
+
+    /**
+     * Returns the pieces of the given side attacking the square in the current position.
+     */
+    public long attackersTo(int square, boolean byWhite) {
+        return attackersTo(square, byWhite, occupancy());
+    }
+
+    /**
+     * Returns true if the square is attacked by the given side.
+     */
+    public boolean isSquareAttacked(int square, boolean byWhite) {
+        return attackersTo(square, byWhite, occupancy()) != 0;
+    }
+
+    /**
+     * Returns true if the king of the given colour is in check.
+     * A missing king counts as being in check.
+     */
+    public boolean isKingInCheck(boolean white) {
+        int king = kingSquare(white);
+        return king < 0 || isSquareAttacked(king, !white);
+    }
+
+    /**
+     * Returns the first piece of the given side (in board order) attacking the square, or -1.
+     */
+    public int findAttackerTo(int square, boolean attackerWhite) {
+        long attackers = attackersTo(square, attackerWhite, occupancy());
+        return attackers == 0 ? -1 : numberOfTrailingZeros(attackers);
+    }
+
+    /**
+     * Returns the pseudo-legal target squares (ignoring checks) for the piece on the square.
+     */
+    public long pseudoLegalTargets(int from) {
+        int piece = squares[from];
+        if (piece == EMPTY) return 0L;
+        int colour = colourOf(piece);
+        int type = typeOf(piece);
+        boolean white = colour == Bitboards.WHITE;
+        long own = colours[colour];
+        long enemy = colours[colour ^ 1];
+        long occ = own | enemy;
+
+        switch (type) {
+            case Bitboards.PAWN -> {
+                long targets = 0L;
+                int step = white ? -8 : 8;
+                int one = from + step;
+                if (one >= 0 && one < 64 && (occ & Bitboards.bit(one)) == 0) {
+                    targets |= Bitboards.bit(one);
+                    int startRow = white ? 6 : 1;
+                    if (Bitboards.row(from) == startRow && (occ & Bitboards.bit(one + step)) == 0)
+                        targets |= Bitboards.bit(one + step);
+                }
+                long captures = Bitboards.PAWN_ATTACKS[colour][from];
+                targets |= captures & enemy;
+                if (enPassantSquare >= 0)
+                    targets |= captures & Bitboards.bit(enPassantSquare);
+                return targets;
+            }
+            case Bitboards.KING -> {
+                return (Bitboards.KING_ATTACKS[from] & ~own) | castlingTargets(from, white);
+            }
+            default -> {
+                return Bitboards.attacks(type, colour, from, occ) & ~own;
+            }
+        }
+    }
+
+    /**
+     * Returns the castling target squares for a king standing on its home square.
+     */
+    private long castlingTargets(int from, boolean white) {
+        int home = white ? 60 : 4;
+        if (from != home) return 0L;
+        long occ = occupancy();
+        int rook = piece(white ? Bitboards.WHITE : Bitboards.BLACK, Bitboards.ROOK);
+        int kingSide = white ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = white ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+        if ((castlingRights & (kingSide | queenSide)) == 0) return 0L;
+        if (isSquareAttacked(home, !white)) return 0L;
+
+        long targets = 0L;
+        // King side: f and g squares empty and not attacked.
+        long kingPath = Bitboards.bit(home + 1) | Bitboards.bit(home + 2);
+        if ((castlingRights & kingSide) != 0 && squares[home + 3] == rook && (occ & kingPath) == 0
+                && !isSquareAttacked(home + 1, !white) && !isSquareAttacked(home + 2, !white))
+            targets |= Bitboards.bit(home + 2);
+        // Queen side: b, c and d squares empty, c and d not attacked.
+        long queenEmpty = Bitboards.bit(home - 1) | Bitboards.bit(home - 2) | Bitboards.bit(home - 3);
+        if ((castlingRights & queenSide) != 0 && squares[home - 4] == rook && (occ & queenEmpty) == 0
+                && !isSquareAttacked(home - 1, !white) && !isSquareAttacked(home - 2, !white))
+            targets |= Bitboards.bit(home - 2);
+        return targets;
+    }
+
+    /**
+     * Returns the legal target squares for the piece on the square.
+     * Only pieces of the side to move have legal moves.
+     */
+    public long legalTargets(int from) {
+        int piece = squares[from];
+        if (piece == EMPTY || (colourOf(piece) == Bitboards.WHITE) != whiteToMove) return 0L;
+
+        int count = generateLegalMoves(scratch, 0);
+        long legal = 0L;
+        for (int i = 0; i < count; i++)
+            if (Move.from(scratch[i]) == from) legal |= Bitboards.bit(Move.to(scratch[i]));
+        return legal;
+    }
+
+    /**
+     * Returns true if the given side has no legal moves.
+     */
+    public boolean hasNoLegalMoves(boolean white) {
+        boolean saved = whiteToMove;
+        whiteToMove = white;
+        try {
+            return generateLegalMoves(scratch, 0) == 0;
+        } finally {
+            whiteToMove = saved;
+        }
+    }
+
+    /**
+     * Writes the legal moves of the side to move into the buffer as packed {@link Move}s.
+     * Checkers and absolutely pinned pieces are found once; after that only legal
+     * moves are emitted: pinned pieces stay on their pin ray, in single check the
+     * other pieces may only capture the checker or block, and in double check only
+     * the king moves. Nothing is allocated, so callers can reuse one buffer per ply
+     * or per thread.
+     * @param moves buffer to write into
+     * @param offset index of the first move to write
+     * @return index after the last written move
+     */
+    public int generateLegalMoves(int[] moves, int offset) {
+        return generateLegal(moves, offset, -1L);
+    }
+
+    /**
+     * Writes the legal captures and promotions of the side to move into the buffer,
+     * for the quiescence search. Uses the same pin and check masks as
+     * {@link #generateLegalMoves(int[], int)}.
+     * @param moves buffer to write into
+     * @param offset index of the first move to write
+     * @return index after the last written move
+     */
+    public int generateLegalCaptures(int[] moves, int offset) {
+        return generateLegal(moves, offset, colours[whiteToMove ? Bitboards.BLACK : Bitboards.WHITE]);
+    }
+
+    /**
+     * Generates the legal moves whose target lies in the filter; pawns may also
+     * always move to the last rank. En passant counts as a capture.
+     */
+    private int generateLegal(int[] moves, int offset, long filter) {
+        int king = kingSquare(whiteToMove);
+        if (king < 0) return offset; // No king counts as check with no way out
+
+        int us = whiteToMove ? Bitboards.WHITE : Bitboards.BLACK;
+        boolean them = !whiteToMove;
+        long own = colours[us];
+        long enemy = colours[us ^ 1];
+        long occ = own | enemy;
+        long checkers = attackersTo(king, them, occ);
+        int n = offset;
+
+        // King: the target must not be attacked once the king has left its square,
+        // so sliders see through the square it is leaving.
+        long kingTargets = pseudoLegalTargets(king) & filter;
+        long withoutKing = occ ^ Bitboards.bit(king);
+        long safe = 0L;
+        while (kingTargets != 0) {
+            int to = numberOfTrailingZeros(kingTargets);
+            kingTargets &= kingTargets - 1;
+            if (attackersTo(to, them, withoutKing) == 0) safe |= Bitboards.bit(to);
+        }
+        n = addMoves(moves, n, king, safe, Bitboards.KING, enemy);
+        if (Long.bitCount(checkers) > 1) return n;
+
+        long checkMask = checkers == 0 ? -1L : checkers | Bitboards.BETWEEN[king][numberOfTrailingZeros(checkers)];
+        long pinned = pinnedPieces(king, us);
+        long others = own & ~Bitboards.bit(king);
+        while (others != 0) {
+            int from = numberOfTrailingZeros(others);
+            others &= others - 1;
+            int type = typeOf(squares[from]);
+            long targets = pseudoLegalTargets(from);
+            if ((pinned & Bitboards.bit(from)) != 0) targets &= Bitboards.LINE[king][from];
+
+            if (type == Bitboards.PAWN && enPassantSquare >= 0 && (targets & Bitboards.bit(enPassantSquare)) != 0) {
+                // En passant removes two pieces from one rank, which can expose the king
+                // in ways the pin and check masks do not see; test it by playing it.
+                targets &= ~Bitboards.bit(enPassantSquare);
+                if (isLegalByPlaying(from, enPassantSquare))
+                    moves[n++] = Move.of(from, enPassantSquare, 0, Move.CAPTURE | Move.EN_PASSANT);
+            }
+            long allowed = type == Bitboards.PAWN ? filter | Bitboards.RANK_8 | Bitboards.RANK_1 : filter;
+            n = addMoves(moves, n, from, targets & checkMask & allowed, type, enemy);
+        }
+        return n;
+    }
+
+    /**
+     * Returns the pieces of the given colour pinned against their own king.
+     */
+    private long pinnedPieces(int king, int us) {
+        int them = us ^ 1;
+        long own = colours[us];
+        long enemy = colours[them];
+        long queens = pieces[piece(them, Bitboards.QUEEN)];
+        // Enemy sliders that would attack the king if own pieces were transparent.
+        long snipers = (Bitboards.rookAttacks(king, enemy) & (pieces[piece(them, Bitboards.ROOK)] | queens))
+                | (Bitboards.bishopAttacks(king, enemy) & (pieces[piece(them, Bitboards.BISHOP)] | queens));
+        long occ = own | enemy;
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.BETWEEN[king][sniper] & occ;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) pinned |= blockers & own;
+        }
+        return pinned;
+    }
+
+    /**
+     * Plays a move, checks that the mover's king is safe and takes the move back.
+     */
+    private boolean isLegalByPlaying(int from, int to) {
+        boolean mover = whiteToMove;
+        makeMove(from, to, Bitboards.QUEEN);
+        boolean legal = !isKingInCheck(mover);
+        unmakeMove();
+        return legal;
+    }
+
+    /**
+     * Writes one packed move per target square, expanding pawn promotions.
+     * @return index after the last written move
+     */
+    private int addMoves(int[] moves, int n, int from, long targets, int type, long enemy) {
+        while (targets != 0) {
+            int to = numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemy & Bitboards.bit(to)) != 0 ? Move.CAPTURE : 0;
+            if (type == Bitboards.PAWN) {
+                if (Math.abs(to - from) == 16) flags |= Move.DOUBLE_PUSH;
+                if (isLastRank(to)) {
+                    for (int promo = Bitboards.QUEEN; promo >= Bitboards.KNIGHT; promo--)
+                        moves[n++] = Move.of(from, to, promo, flags | Move.PROMOTION);
+                    continue;
+                }
+            } else if (type == Bitboards.KING && Math.abs(to - from) == 2) {
+                flags |= Move.CASTLING;
+            }
+            moves[n++] = Move.of(from, to, 0, flags);
+        }
+        return n;
+    }
+
+    /**
+     * Plays a packed move in place. See {@link #makeMove(int, int, int)}.
+     */
+    public void makeMove(int move) {
+        int promotion = Move.promotion(move);
+        makeMove(Move.from(move), Move.to(move), promotion == 0 ? Bitboards.QUEEN : promotion);
+    }
+
+    /**
+     * Packs a move given by its squares, filling in the flags from the position.
+     * @param from origin square
+     * @param to target square
+     * @param promotionType piece type a pawn promotes to on the last rank
+     * @return the packed move
+     */
+    public int toMove(int from, int to, int promotionType) {
+        int piece = squares[from];
+        int type = typeOf(piece);
+        int flags = squares[to] != EMPTY ? Move.CAPTURE : 0;
+        int promotion = 0;
+        if (type == Bitboards.PAWN) {
+            if (isEnPassant(from, to)) flags |= Move.CAPTURE | Move.EN_PASSANT;
+            if (Math.abs(to - from) == 16) flags |= Move.DOUBLE_PUSH;
+            if (isLastRank(to)) {
+                flags |= Move.PROMOTION;
+                promotion = promotionType;
+            }
+        } else if (type == Bitboards.KING && Math.abs(to - from) == 2) {
+            flags |= Move.CASTLING;
+        }
+        return Move.of(from, to, promotion, flags);
+    }
+
+    /**
+     * Returns true if the move, played in this position, checks the opponent's king.
+     * Looks only at what the move changes: a direct check from the moved piece
+     * (or the castling rook) on its new square, and a discovered check along the
+     * line from the king through the squares the move vacates.
+     * @param move packed legal move for the side to move
+     * @return true if the move gives check
+     */
+    public boolean givesCheck(int move) {
+        int enemyKing = kingSquare(!whiteToMove);
+        if (enemyKing < 0) return false;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = whiteToMove ? Bitboards.WHITE : Bitboards.BLACK;
+        int type = Move.isPromotion(move) ? Move.promotion(move) : typeOf(squares[from]);
+        long kingBit = Bitboards.bit(enemyKing);
+        long occ = (occupancy() & ~Bitboards.bit(from)) | Bitboards.bit(to);
+        long vacated = Bitboards.bit(from);
+
+        if (Move.isEnPassant(move)) {
+            int victim = enPassantVictim(to, squares[from]);
+            occ &= ~Bitboards.bit(victim);
+            vacated |= Bitboards.bit(victim);
+        } else if (Move.isCastling(move)) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            occ = (occ & ~Bitboards.bit(rookFrom)) | Bitboards.bit(rookTo);
+            if ((Bitboards.rookAttacks(rookTo, occ) & kingBit) != 0) return true;
+            vacated |= Bitboards.bit(rookFrom);
+        }
+
+        // Direct check from the moved (or promoted) piece.
+        if ((Bitboards.attacks(type, us, to, occ) & kingBit) != 0) return true;
+
+        // Discovered check: only possible if a vacated square lies on a line to the king
+        // and the piece did not simply move along that line.
+        boolean onLine = false;
+        long v = vacated;
+        while (v != 0) {
+            int sq = numberOfTrailingZeros(v);
+            v &= v - 1;
+            long line = Bitboards.LINE[enemyKing][sq];
+            if (line != 0 && (line & Bitboards.bit(to)) == 0) onLine = true;
+        }
+        if (!onLine) return false;
+        long queens = pieces[piece(us, Bitboards.QUEEN)];
+        long sliders = (Bitboards.rookAttacks(enemyKing, occ) & (pieces[piece(us, Bitboards.ROOK)] | queens))
+                | (Bitboards.bishopAttacks(enemyKing, occ) & (pieces[piece(us, Bitboards.BISHOP)] | queens));
+        return (sliders & ~vacated) != 0;
+    }
+
+    /**
+     * Returns true if a move from the square to the target is a pawn promotion.
+     */
+    public boolean isPromotion(int from, int to) {
+        int piece = squares[from];
+        return piece != EMPTY && typeOf(piece) == Bitboards.PAWN && isLastRank(to);
+    }
+
+    /**
+     * Returns true if a move from the square to the target captures en passant.
+     */
+    public boolean isEnPassant(int from, int to) {
+        int piece = squares[from];
+        return piece != EMPTY && typeOf(piece) == Bitboards.PAWN && to == enPassantSquare && squares[to] == EMPTY;
+    }
+
+    /**
+     * Returns the piece the move from the square to the target would capture, or EMPTY.
+     * Includes the pawn taken by an en passant capture.
+     */
+    public int capturedPiece(int from, int to) {
+        return isEnPassant(from, to) ? squares[enPassantVictim(to, squares[from])] : squares[to];
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Plays a move in place and passes the turn to the other side.
+     * Captures (including en passant), the castling rook, promotion, castling rights,
+     * the en passant square and the halfmove clock are all updated; the previous
+     * state is pushed on the undo stack so {@link #unmakeMove()} can restore it.
+     * @param from origin square
+     * @param to target square
+     * @param promotionType piece type a pawn promotes to on the last rank
+     */
+    public void makeMove(int from, int to, int promotionType) {
+        int piece = squares[from];
+        int type = typeOf(piece);
+        boolean enPassant = type == Bitboards.PAWN && to == enPassantSquare && squares[to] == EMPTY;
+        int capturedSquare = enPassant ? enPassantVictim(to, piece) : to;
+        int captured = squares[capturedSquare];
+        boolean promotion = type == Bitboards.PAWN && isLastRank(to);
+
+        pushUndo(from, to, captured, enPassant, promotion);
+        key ^= enPassantKey() ^ Zobrist.CASTLING[castlingRights];
+
+        if (captured != EMPTY) remove(capturedSquare);
+        remove(from);
+        put(promotion ? piece(colourOf(piece), promotionType) : piece, to);
+        if (type == Bitboards.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            if (squares[rookFrom] != EMPTY) movePiece(rookFrom, rookTo);
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        enPassantSquare = type == Bitboards.PAWN && Math.abs(to - from) == 16 ? (from + to) / 2 : -1;
+        halfmoveClock = type == Bitboards.PAWN || captured != EMPTY ? 0 : halfmoveClock + 1;
+        whiteToMove = !whiteToMove;
+        key ^= Zobrist.BLACK_TO_MOVE ^ Zobrist.CASTLING[castlingRights] ^ enPassantKey();
+    }
+
+    /**
+     * Takes back the last move played with {@link #makeMove(int, int, int)}.
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void unmakeMove() {
+        if (undoSize == 0) throw new IllegalStateException("No move to unmake");
+        long entry = undoStack[--undoSize];
+        int from = (int) (entry & 63);
+        int to = (int) ((entry >>> 6) & 63);
+        int captured = (int) ((entry >>> 12) & 15) - 1;
+        boolean enPassant = ((entry >>> 16) & 1) != 0;
+        boolean promotion = ((entry >>> 17) & 1) != 0;
+
+        whiteToMove = !whiteToMove;
+        enPassantSquare = (int) ((entry >>> 18) & 127) - 1;
+        castlingRights = (int) ((entry >>> 25) & 15);
+        halfmoveClock = (int) (entry >>> 29);
+
+        int piece = squares[to];
+        remove(to);
+        put(promotion ? piece(colourOf(piece), Bitboards.PAWN) : piece, from);
+        if (typeOf(piece) == Bitboards.KING && Math.abs(to - from) == 2) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            if (squares[rookTo] != EMPTY) movePiece(rookTo, rookFrom);
+        }
+        if (captured != EMPTY) put(captured, enPassant ? enPassantVictim(to, piece) : to);
+        key = keyStack[undoSize];
+    }
+
+    /**
+     * Returns true if the current position already occurred since the last
+     * capture or pawn move, as far back as the undo stack reaches.
+     * Only positions with the same side to move are compared.
+     */
+    public boolean isRepetition() {
+        int limit = Math.max(0, undoSize - halfmoveClock);
+        for (int i = undoSize - 2; i >= limit; i -= 2)
+            if (keyStack[i] == key) return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of moves that can be taken back.
+     */
+    public int undoDepth() {
+        return undoSize;
+    }
+
+    /**
+     * Packs the state needed to take back a move into one undo stack entry:
+     * from, to, captured piece + 1, en passant flag, promotion flag,
+     * previous en passant square + 1, castling rights and halfmove clock.
+     */
+    private void pushUndo(int from, int to, int captured, boolean enPassant, boolean promotion) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+            keyStack = Arrays.copyOf(keyStack, undoSize * 2);
+        }
+        keyStack[undoSize] = key;
+        undoStack[undoSize++] = from
+                | (long) to << 6
+                | (long) (captured + 1) << 12
+                | (enPassant ? 1L : 0L) << 16
+                | (promotion ? 1L : 0L) << 17
+                | (long) (enPassantSquare + 1) << 18
+                | (long) castlingRights << 25
+                | (long) halfmoveClock << 29;
+    }
+
+    /**
+     * Returns the square of the pawn taken by an en passant capture on the target square.
+     */
+    private static int enPassantVictim(int to, int capturingPawn) {
+        return to + (colourOf(capturingPawn) == Bitboards.WHITE ? 8 : -8);
+    }
+
+    private static boolean isLastRank(int square) {
+        return square < 8 || square >= 56;
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = squares[from];
+        remove(from);
+        put(piece, to);
+    }
+
+    private void put(int piece, int square) {
+        long b = Bitboards.bit(square);
+        pieces[piece] |= b;
+        colours[colourOf(piece)] |= b;
+        squares[square] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+
+    private void remove(int square) {
+        int piece = squares[square];
+        long b = ~Bitboards.bit(square);
+        pieces[piece] &= b;
+        colours[colourOf(piece)] &= b;
+        squares[square] = EMPTY;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+}
@@ -0,0 +1,692 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the stored games that reached a position, by Zobrist key, and the moves
+ * played next in them.
+ * <p>
+ * Every position of every game is an entry: its key, and a value packing the game
+ * number, the ply and the 16-bit code of the move played from it (0 where the
+ * game ended). The index file holds the entries sorted by key and then by value,
+ * keys first and values after them in the same order. A position is found by two
+ * binary searches of about twenty small reads each; its entries are one run, in
+ * which the games come oldest first. The file is read with positional reads,
+ * not kept in memory or mapped.
+ * <p>
+ * The index is built by replaying all games of the store on a fork-join pool and
+ * sorting the entries in parallel. Each game saved afterwards is appended to a
+ * small log file, which is searched in memory and merged into the index file once
+ * it holds {@value #MAX_LOG_ENTRIES} entries. The file header records how many
+ * games the file covers, and log entries of those games are ignored, so a log
+ * left behind by a crash during the merge is not counted twice. If games were added another way,
+ * e.g. by a PGN import, {@link #openUpToDate} catches up or rebuilds the index.
+ */
+public final class PositionIndex implements Closeable {
+
+    public static final Path INDEX_FILE = Paths.get("games.pos");
+    public static final Path LOG_FILE = Paths.get("games.pos.log");
+
+    /** Log entries after which the log is merged into the index file. */
+    public static final int MAX_LOG_ENTRIES = 1 << 16;
+
+    private static final int MAGIC = 0x50434B50; // "PCKP"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16; // Magic, version, games, entries
+    private static final int BLOCK = 4096; // Entries read or written at a time
+    private static final int SORT_THRESHOLD = 1 << 13;
+    private static final int REPLAY_THRESHOLD = 64; // Games per replay task
+
+    /**
+     * A game that reached a position.
+     * @param game number of the game in the store
+     * @param ply number of moves played when the position was reached
+     */
+    public record Hit(int game, int ply) {
+    }
+
+    /**
+     * A move played from a position, with the number of times it was played.
+     * @param move move code from {@link StoredGame#encodeMove(int)}, or 0 where games ended
+     * @param count number of times
+     */
+    public record NextMove(short move, int count) {
+    }
+
+    private final FileChannel channel;
+    private final int games;
+    private final int count;
+    private final long[] logKeys;
+    private final long[] logValues;
+
+    private PositionIndex(FileChannel channel, int games, int count, long[] logKeys, long[] logValues) {
+        this.channel = channel;
+        this.games = games;
+        this.count = count;
+        this.logKeys = logKeys;
+        this.logValues = logValues;
+    }
+
+    /**
+     * Returns the number of games from the start of the store that are indexed.
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * Returns the number of positions indexed, counting each time a game reached one.
+     */
+    public long size() {
+        return (long) count + logKeys.length;
+    }
+
+    /**
+     * Returns the games that reached a position, oldest first.
+     * @param key Zobrist key of the position
+     * @param limit most hits to return
+     * @return the first {@code limit} hits
+     * @throws IOException if the index cannot be read
+     */
+    public List<Hit> find(long key, int limit) throws IOException {
+        List<Hit> hits = new ArrayList<>();
+        int first = bound(key, false);
+        int n = Math.min(bound(key, true) - first, limit);
+        LongBuffer values = ByteBuffer.allocate(Math.min(n, BLOCK) * 8).asLongBuffer();
+        for (int done = 0; done < n; ) {
+            int chunk = Math.min(n - done, BLOCK);
+            readValues(values, first + done, chunk);
+            for (int i = 0; i < chunk; i++) hits.add(new Hit(gameOf(values.get(i)), plyOf(values.get(i))));
+            done += chunk;
+        }
+        // Logged games come after every game of the file
+        for (int i = bound(logKeys, key, false); i < logKeys.length && logKeys[i] == key && hits.size() < limit; i++)
+            hits.add(new Hit(gameOf(logValues[i]), plyOf(logValues[i])));
+        return hits;
+    }
+
+    /**
+     * Returns the latest games that reached a position, newest first. Reads only
+     * the end of the position's run, however often the position was reached.
+     * @param key Zobrist key of the position
+     * @param limit most hits to return
+     * @return the last {@code limit} hits
+     * @throws IOException if the index cannot be read
+     */
+    public List<Hit> latest(long key, int limit) throws IOException {
+        List<Hit> hits = new ArrayList<>();
+        int logFirst = bound(logKeys, key, false);
+        for (int i = bound(logKeys, key, true) - 1; i >= logFirst && hits.size() < limit; i--)
+            hits.add(new Hit(gameOf(logValues[i]), plyOf(logValues[i])));
+        int first = bound(key, false), end = bound(key, true);
+        int n = Math.min(end - first, limit - hits.size());
+        if (n > 0) {
+            LongBuffer values = ByteBuffer.allocate(n * 8).asLongBuffer();
+            readValues(values, end - n, n);
+            for (int i = n - 1; i >= 0; i--) hits.add(new Hit(gameOf(values.get(i)), plyOf(values.get(i))));
+        }
+        return hits;
+    }
+
+    /**
+     * Returns the moves played from a position, most played first.
+     * @param key Zobrist key of the position
+     * @return the moves with their counts; empty if no game reached the position
+     * @throws IOException if the index cannot be read
+     */
+    public List<NextMove> nextMoves(long key) throws IOException {
+        int[] counts = new int[1 << 15];
+        for (int i = bound(logKeys, key, false); i < logKeys.length && logKeys[i] == key; i++)
+            counts[nextOf(logValues[i])]++;
+        int first = bound(key, false);
+        int n = bound(key, true) - first;
+        LongBuffer values = ByteBuffer.allocate(Math.min(n, BLOCK) * 8).asLongBuffer();
+        for (int done = 0; done < n; ) {
+            int chunk = Math.min(n - done, BLOCK);
+            readValues(values, first + done, chunk);
+            for (int i = 0; i < chunk; i++) counts[nextOf(values.get(i))]++;
+            done += chunk;
+        }
+        List<NextMove> moves = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++)
+            if (counts[code] > 0) moves.add(new NextMove((short) code, counts[code]));
+        moves.sort((a, b) -> Integer.compare(b.count(), a.count()));
+        return moves;
+    }
+
+    /**
+     * Returns the index of the first key in the file greater than the given one,
+     * or if {@code after} is false, not less than it.
+     */
+    private int bound(long key, boolean after) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = readKey(buffer, mid);
+            if (k < key || after && k == key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long readKey(ByteBuffer buffer, int i) throws IOException {
+        buffer.clear();
+        readFully(channel, buffer, HEADER_SIZE + (long) i * 8);
+        return buffer.getLong(0);
+    }
+
+    private void readValues(LongBuffer values, int first, int n) throws IOException {
+        readLongs(values, HEADER_SIZE + (long) count * 8 + (long) first * 8, n);
+    }
+
+    /**
+     * Reads longs from the file into the start of a buffer made by {@link ByteBuffer#asLongBuffer()}.
+     */
+    private void readLongs(LongBuffer target, long position, int n) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(n * 8);
+        readFully(channel, bytes, position);
+        target.clear();
+        target.put(bytes.asLongBuffer());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ---- Opening, building and updating
+
+    /**
+     * Opens the index with its log.
+     * @param file the index file
+     * @param log the log of games added since the file was written
+     * @return the index, or null if there is no index file or it is not a complete index
+     * @throws IOException if the files cannot be read
+     */
+    public static PositionIndex open(Path file, Path log) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() < HEADER_SIZE) {
+                channel.close();
+                return null;
+            }
+            readFully(channel, header, 0);
+            int games = header.getInt(8), count = header.getInt(12);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+                    || channel.size() != HEADER_SIZE + (long) count * 16) {
+                channel.close();
+                return null;
+            }
+            long[][] entries = readLog(log, games);
+            for (long value : entries[1]) games = Math.max(games, gameOf(value) + 1);
+            return new PositionIndex(channel, games, count, entries[0], entries[1]);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the index of a store, building it if there is none or it belongs to
+     * another store, and adding games the store has gained since it was written.
+     * @param view the store
+     * @param file the index file
+     * @param log the log file
+     * @return the index of every game of the store
+     * @throws IOException if the files cannot be read or written
+     */
+    public static synchronized PositionIndex openUpToDate(GameStoreView view, Path file, Path log) throws IOException {
+        PositionIndex index = open(file, log);
+        if (index != null && index.games == view.size()) return index;
+        long missing = 0;
+        if (index != null) {
+            index.close();
+            for (int id = index.games; id < view.size(); id++) missing += view.plies(id) + 1;
+        }
+        if (index == null || index.games > view.size() || index.logKeys.length + missing > MAX_LOG_ENTRIES) {
+            build(view, file, log, Runtime.getRuntime().availableProcessors());
+        } else {
+            for (int id = index.games; id < view.size(); id++) appendToLog(log, id, view.read(id));
+        }
+        return open(file, log);
+    }
+
+    /**
+     * Adds a game just saved to the index, if the index exists and holds every
+     * game before it; otherwise the game is picked up by {@link #openUpToDate}.
+     * Merges the log into the index file when it is full.
+     * @param id number of the game in the store
+     * @param game the game
+     * @param file the index file
+     * @param log the log file
+     * @throws IOException if the files cannot be read or written
+     */
+    public static void recordGame(int id, StoredGame game, Path file, Path log) throws IOException {
+        recordGame(id, game, file, log, MAX_LOG_ENTRIES);
+    }
+
+    /**
+     * Adds a game just saved to the index, merging the log into the index file
+     * once it would hold more than the given number of entries.
+     */
+    static synchronized void recordGame(int id, StoredGame game, Path file, Path log, int maxLogEntries)
+            throws IOException {
+        int logEntries;
+        try (PositionIndex index = open(file, log)) {
+            if (index == null || index.games != id) return;
+            logEntries = index.logKeys.length;
+        }
+        appendToLog(log, id, game);
+        if (logEntries + game.plies() + 1 > maxLogEntries) compact(file, log);
+    }
+
+    /**
+     * Deletes the index files in the working directory.
+     * @throws IOException if a file cannot be deleted
+     */
+    public static void delete() throws IOException {
+        Files.deleteIfExists(LOG_FILE);
+        Files.deleteIfExists(INDEX_FILE);
+    }
+
+    /**
+     * Builds the index of every game of a store and writes it, dropping any log.
+     * @param view the store
+     * @param file the index file
+     * @param log the log file
+     * @param threads number of threads replaying games and sorting
+     * @throws IOException if the index cannot be written
+     */
+    public static synchronized void build(GameStoreView view, Path file, Path log, int threads) throws IOException {
+        int games = view.size();
+        int[] start = new int[games + 1];
+        long total = 0;
+        for (int id = 0; id < games; id++) {
+            total += view.plies(id) + 1;
+            if (total > Integer.MAX_VALUE - 8) throw new IOException("Too many positions to index");
+            start[id + 1] = (int) total;
+        }
+        long[] keys = new long[(int) total];
+        long[] values = new long[(int) total];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ReplayTask(view, start, keys, values, 0, games));
+            pool.invoke(new SortTask(keys, values, 0, keys.length - 1));
+        } finally {
+            pool.shutdown();
+        }
+        // The log may hold games of another store with the same numbers
+        Files.deleteIfExists(log);
+        write(file, games, keys.length, new ArrayCursor(keys, values), new ArrayCursor(keys, values));
+    }
+
+    /**
+     * Writes the positions of a game into the entry arrays from a given index.
+     */
+    private static void replay(int id, StoredGame game, long[] keys, long[] values, int at) {
+        Position position = Position.fromFen(Position.START_FEN);
+        short[] moves = game.moves();
+        for (int ply = 0; ; ply++) {
+            keys[at + ply] = position.getKey();
+            short next = ply < moves.length ? moves[ply] : 0;
+            values[at + ply] = value(id, ply, next);
+            if (ply == moves.length) return;
+            position.makeMove(StoredGame.decodeMove(position, next));
+        }
+    }
+
+    private static void appendToLog(Path log, int id, StoredGame game) throws IOException {
+        int n = game.plies() + 1;
+        long[] keys = new long[n], values = new long[n];
+        replay(id, game, keys, values, 0);
+        ByteBuffer bytes = ByteBuffer.allocate(n * 16);
+        for (int i = 0; i < n; i++) bytes.putLong(keys[i]).putLong(values[i]);
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Drop a torn last entry, so the new entries line up
+            long end = channel.size() - channel.size() % 16;
+            channel.truncate(end);
+            while (bytes.hasRemaining()) end += channel.write(bytes, end);
+        }
+    }
+
+    /**
+     * Reads the log, sorted by key and value. A torn last entry is ignored, and
+     * so are the entries of games the index file already covers.
+     * @param covered number of games in the index file
+     * @return keys and values
+     */
+    private static long[][] readLog(Path log, int covered) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(log);
+        } catch (NoSuchFileException e) {
+            return new long[][]{new long[0], new long[0]};
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] keys = new long[bytes.length / 16], values = new long[keys.length];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[n] = buffer.getLong();
+            values[n] = buffer.getLong();
+            if (gameOf(values[n]) >= covered) n++;
+        }
+        if (n < keys.length) {
+            keys = Arrays.copyOf(keys, n);
+            values = Arrays.copyOf(values, n);
+        }
+        SortTask.sort(keys, values, 0, n - 1);
+        return new long[][]{keys, values};
+    }
+
+    /**
+     * Merges the log into the index file and deletes the log.
+     */
+    private static void compact(Path file, Path log) throws IOException {
+        try (PositionIndex index = open(file, log)) {
+            if (index == null) return;
+            write(file, index.games, index.count + index.logKeys.length,
+                    new MergeCursor(index), new MergeCursor(index));
+        }
+        Files.deleteIfExists(log);
+    }
+
+    /**
+     * Writes an index file through a temporary file. The entries are passed twice,
+     * once for the keys and once for the values, so they are never all in memory.
+     */
+    private static void write(Path file, int games, int count, Cursor keys, Cursor values) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK * 8);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(games).putInt(count);
+            for (Cursor cursor : new Cursor[]{keys, values}) {
+                boolean isKeys = cursor == keys;
+                for (int i = 0; i < count; i++) {
+                    if (!buffer.hasRemaining()) flush(out, buffer);
+                    cursor.next();
+                    buffer.putLong(isKeys ? cursor.key() : cursor.value());
+                }
+            }
+            flush(out, buffer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Position index is truncated");
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Returns the index of the first key greater than the given one, or if
+     * {@code after} is false, not less than it.
+     */
+    private static int bound(long[] keys, long key, boolean after) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key || after && keys[mid] == key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Value layout: bits 32-63 game, 16-31 ply, 0-15 next move
+    private static long value(int game, int ply, short next) {
+        return (long) game << 32 | (long) ply << 16 | (next & 0xFFFF);
+    }
+
+    /**
+     * Orders entries by key, then by value, i.e. by game and ply.
+     */
+    private static int compare(long key1, long value1, long key2, long value2) {
+        return key1 != key2 ? Long.compare(key1, key2) : Long.compare(value1, value2);
+    }
+
+    private static int gameOf(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int plyOf(long value) {
+        return (int) (value >>> 16) & 0xFFFF;
+    }
+
+    private static int nextOf(long value) {
+        return (int) value & 0x7FFF;
+    }
+
+    // ---- Helpers for building
+
+    /**
+     * Entries in key order, read one at a time.
+     */
+    private interface Cursor {
+        void next() throws IOException;
+
+        long key();
+
+        long value();
+    }
+
+    private static final class ArrayCursor implements Cursor {
+        private final long[] keys, values;
+        private int i = -1;
+
+        ArrayCursor(long[] keys, long[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public void next() {
+            i++;
+        }
+
+        @Override
+        public long key() {
+            return keys[i];
+        }
+
+        @Override
+        public long value() {
+            return values[i];
+        }
+    }
+
+    /**
+     * Merges the sorted entries of an index file with its sorted log.
+     */
+    private static final class MergeCursor implements Cursor {
+        private final PositionIndex index;
+        private final LongBuffer fileKeys = ByteBuffer.allocate(BLOCK * 8).asLongBuffer();
+        private final LongBuffer fileValues = ByteBuffer.allocate(BLOCK * 8).asLongBuffer();
+        private int fileNext; // Next entry of the file
+        private int blockStart = -BLOCK; // Entry of the file at the start of the buffers
+        private int logNext;
+        private long key, value;
+
+        MergeCursor(PositionIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void next() throws IOException {
+            boolean fromFile = fileNext < index.count;
+            if (fromFile && fileNext >= blockStart + BLOCK) {
+                blockStart = fileNext;
+                int n = Math.min(BLOCK, index.count - blockStart);
+                index.readLongs(fileKeys, HEADER_SIZE + (long) blockStart * 8, n);
+                index.readValues(fileValues, blockStart, n);
+            }
+            if (fromFile && logNext < index.logKeys.length)
+                fromFile = compare(fileKeys.get(fileNext - blockStart), fileValues.get(fileNext - blockStart),
+                        index.logKeys[logNext], index.logValues[logNext]) <= 0;
+            if (fromFile) {
+                key = fileKeys.get(fileNext - blockStart);
+                value = fileValues.get(fileNext - blockStart);
+                fileNext++;
+            } else {
+                key = index.logKeys[logNext];
+                value = index.logValues[logNext];
+                logNext++;
+            }
+        }
+
+        @Override
+        public long key() {
+            return key;
+        }
+
+        @Override
+        public long value() {
+            return value;
+        }
+    }
+
+    /**
+     * Replays a range of games into their slots of the entry arrays, splitting
+     * the range between workers.
+     */
+    private static final class ReplayTask extends RecursiveAction {
+        private final GameStoreView view;
+        private final int[] start;
+        private final long[] keys, values;
+        private final int from, to;
+
+        ReplayTask(GameStoreView view, int[] start, long[] keys, long[] values, int from, int to) {
+            this.view = view;
+            this.start = start;
+            this.keys = keys;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= REPLAY_THRESHOLD) {
+                for (int id = from; id < to; id++) replay(id, view.read(id), keys, values, start[id]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ReplayTask(view, start, keys, values, from, mid),
+                    new ReplayTask(view, start, keys, values, mid, to));
+        }
+    }
+
+    /**
+     * Sorts entries by key and value in place: quicksort whose halves run in
+     * parallel while they are large.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private final long[] keys, values;
+        private final int lo, hi;
+
+        SortTask(long[] keys, long[] values, int lo, int hi) {
+            this.keys = keys;
+            this.values = values;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo < SORT_THRESHOLD) {
+                sort(keys, values, lo, hi);
+                return;
+            }
+            int p = partition(keys, values, lo, hi);
+            invokeAll(new SortTask(keys, values, lo, p), new SortTask(keys, values, p + 1, hi));
+        }
+
+        /**
+         * Sorts entries lo..hi (inclusive) on the calling thread.
+         */
+        static void sort(long[] keys, long[] values, int lo, int hi) {
+            while (hi - lo > 16) {
+                int p = partition(keys, values, lo, hi);
+                // Recurse into the smaller half to bound the stack
+                if (p - lo < hi - p) {
+                    sort(keys, values, lo, p);
+                    lo = p + 1;
+                } else {
+                    sort(keys, values, p + 1, hi);
+                    hi = p;
+                }
+            }
+            for (int i = lo + 1; i <= hi; i++) {
+                long k = keys[i], v = values[i];
+                int j = i - 1;
+                for (; j >= lo && compare(keys[j], values[j], k, v) > 0; j--) {
+                    keys[j + 1] = keys[j];
+                    values[j + 1] = values[j];
+                }
+                keys[j + 1] = k;
+                values[j + 1] = v;
+            }
+        }
+
+        /**
+         * Hoare partition around the median of three. Returns p such that lo..p
+         * are not greater than p+1..hi.
+         */
+        private static int partition(long[] keys, long[] values, int lo, int hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(keys[mid], values[mid], keys[lo], values[lo]) < 0) swap(keys, values, mid, lo);
+            if (compare(keys[hi], values[hi], keys[lo], values[lo]) < 0) swap(keys, values, hi, lo);
+            if (compare(keys[hi], values[hi], keys[mid], values[mid]) < 0) swap(keys, values, hi, mid);
+            long pivotKey = keys[mid], pivotValue = values[mid];
+            int i = lo - 1, j = hi + 1;
+            while (true) {
+                do i++; while (compare(keys[i], values[i], pivotKey, pivotValue) < 0);
+                do j--; while (compare(keys[j], values[j], pivotKey, pivotValue) > 0);
+                if (i >= j) return j;
+                swap(keys, values, i, j);
+            }
+        }
+
+        private static void swap(long[] keys, long[] values, int i, int j) {
+            long k = keys[i];
+            keys[i] = keys[j];
+            keys[j] = k;
+            long v = values[i];
+            values[i] = values[j];
+            values[j] = v;
+        }
+    }
+}
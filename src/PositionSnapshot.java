@@ -0,0 +1,154 @@
+import java.awt.Point;
+
+/**
+ * Immutable view of a position for the UI.
+ * Built off the event thread by {@link GameService}, it carries everything the
+ * board needs until the next move: the pieces, the side to move, the key, whether
+ * the king is in check (and by whom) and every legal move, indexed by origin
+ * square. The UI answers clicks from it without running the rules engine.
+ */
+public final class PositionSnapshot {
+
+    private final Position position;
+    private final LegalMoveIndex legalMoves;
+    private final boolean inCheck;
+    private final Point checkedKing;
+    private final Point checker;
+    private final int lastMove;
+    private final String movedPiece;
+    private final String capturedPiece;
+
+    private PositionSnapshot(Position position, boolean inCheck, int lastMove, String movedPiece, String capturedPiece) {
+        this.position = position;
+        this.legalMoves = LegalMoveIndex.of(position);
+        this.inCheck = inCheck;
+        SpecialMoves sm = new SpecialMoves(position);
+        boolean white = position.isWhiteToMove();
+        this.checkedKing = inCheck ? sm.findKingPublic(white) : null;
+        this.checker = inCheck ? sm.findAttackerTo(checkedKing, !white) : null;
+        this.lastMove = lastMove;
+        this.movedPiece = movedPiece;
+        this.capturedPiece = capturedPiece;
+    }
+
+    /**
+     * Takes a snapshot of a position. The position must not be changed afterwards.
+     * @param position position to wrap
+     * @return the snapshot
+     */
+    public static PositionSnapshot of(Position position) {
+        return new PositionSnapshot(position, position.isKingInCheck(position.isWhiteToMove()), 0, null, null);
+    }
+
+    /**
+     * Plays a legal move on a copy of the snapshot's position and snapshots the result.
+     * @param before snapshot to move from; left unchanged
+     * @param move packed legal move
+     * @return the snapshot after the move, remembering the move
+     */
+    public static PositionSnapshot afterMove(PositionSnapshot before, int move) {
+        Position next = before.position.copyWithRecentHistory();
+        int captured = next.capturedPiece(Move.from(move), Move.to(move));
+        String moved = Position.pieceToString(next.pieceAt(Move.from(move)));
+        boolean check = next.givesCheck(move);
+        next.makeMove(move);
+        return new PositionSnapshot(next, check, move,
+                moved, captured == Position.EMPTY ? null : Position.pieceToString(captured));
+    }
+
+    /**
+     * Returns a mutable copy of the position, e.g. for a search. It keeps the
+     * moves since the last capture or pawn move, so repetitions can be detected.
+     */
+    public Position toPosition() {
+        return position.copyWithRecentHistory();
+    }
+
+    /**
+     * Writes the pieces into a String[][] board used by the UI.
+     */
+    public void copyBoardTo(String[][] board) {
+        position.copyToBoard(board);
+    }
+
+    public boolean isWhiteToMove() {
+        return position.isWhiteToMove();
+    }
+
+    public long getKey() {
+        return position.getKey();
+    }
+
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    public boolean hasLegalMoves() {
+        return legalMoves.size() > 0;
+    }
+
+    /**
+     * Returns the king in check, or null if the side to move is not in check.
+     */
+    public Point getCheckedKing() {
+        return checkedKing;
+    }
+
+    /**
+     * Returns a piece giving check, or null if the side to move is not in check.
+     */
+    public Point getChecker() {
+        return checker;
+    }
+
+    /**
+     * Returns the move that led to this snapshot, or 0 if it was not made by a move.
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Returns the piece that made the last move, in the UI's notation.
+     */
+    public String getMovedPiece() {
+        return movedPiece;
+    }
+
+    /**
+     * Returns the piece taken by the last move, or null.
+     */
+    public String getCapturedPiece() {
+        return capturedPiece;
+    }
+
+    /**
+     * Returns the target squares of the legal moves from the given square, as a
+     * bitboard with bit {@code row * 8 + col} set for each target.
+     */
+    public long legalTargets(int row, int col) {
+        return legalMoves.targets(Bitboards.square(row, col));
+    }
+
+    /**
+     * Returns true if a move between the squares needs a promotion choice.
+     */
+    public boolean isPromotion(int from, int to) {
+        for (int i = legalMoves.start(from); i < legalMoves.end(from); i++)
+            if (Move.to(legalMoves.move(i)) == to) return Move.isPromotion(legalMoves.move(i));
+        return false;
+    }
+
+    /**
+     * Finds the legal move between the squares.
+     * @param promotionType piece type for a promotion; ignored otherwise
+     * @return the packed move, or 0 if there is no such legal move
+     */
+    public int findMove(int from, int to, int promotionType) {
+        for (int i = legalMoves.start(from); i < legalMoves.end(from); i++) {
+            int move = legalMoves.move(i);
+            if (Move.to(move) == to && (!Move.isPromotion(move) || Move.promotion(move) == promotionType)) return move;
+        }
+        return 0;
+    }
+}
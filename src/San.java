@@ -0,0 +1,171 @@
+/**
+ * Reads and writes moves in standard algebraic notation (SAN), e.g. "Nf3",
+ * "exd5", "O-O" or "e8=Q+". Reading is lenient, so it also accepts the notation
+ * of the game log and of old history files: castling written as the king's move
+ * ("Kg1"), a promotion without its piece (taken as a queen), and a missing
+ * disambiguation (the first matching move is taken). Strict reading, for PGN
+ * files, accepts only moves that name exactly one legal move.
+ */
+public final class San {
+
+    private static final String PIECES = "PNBRQK"; // Indexed by piece type
+
+    private San() {
+    }
+
+    /**
+     * Finds the legal move a SAN token stands for.
+     * @param position position the move is played in; not changed
+     * @param san the move, with or without check marks and annotations
+     * @return the packed move, or 0 if no legal move matches
+     */
+    public static int parse(Position position, String san) {
+        return parse(position, san, new int[Position.MAX_MOVES]);
+    }
+
+    /**
+     * Finds the legal move a SAN token stands for, generating moves into the given
+     * buffer so that parsing many games allocates little.
+     * @param position position the move is played in; not changed
+     * @param san the move, with or without check marks and annotations
+     * @param buffer scratch buffer of at least {@link Position#MAX_MOVES} moves
+     * @return the packed move, or 0 if no legal move matches
+     */
+    public static int parse(Position position, String san, int[] buffer) {
+        return parse(position, san, buffer, false);
+    }
+
+    /**
+     * Finds the legal move a SAN token stands for. In strict mode the token must
+     * name exactly one legal move: an ambiguous move, castling written as a king
+     * move, a promotion without its piece or to a pawn or king, and a promotion
+     * piece on a move that does not promote are rejected.
+     * @param position position the move is played in; not changed
+     * @param san the move, with or without check marks and annotations
+     * @param buffer scratch buffer of at least {@link Position#MAX_MOVES} moves
+     * @param strict true to reject what lenient reading guesses at
+     * @return the packed move, or 0 if no legal move matches
+     */
+    public static int parse(Position position, String san, int[] buffer, boolean strict) {
+        String s = san.trim();
+        int end = s.length();
+        while (end > 0 && "+#!?".indexOf(s.charAt(end - 1)) >= 0) end--;
+        s = s.substring(0, end);
+        if (s.isEmpty()) return 0;
+
+        boolean white = position.isWhiteToMove();
+        if (s.equals("O-O") || s.equals("0-0") || s.equals("O-O-O") || s.equals("0-0-0")) {
+            int row = white ? 7 : 0;
+            return find(position, buffer, Bitboards.KING, -1, -1, Bitboards.square(row, s.length() == 3 ? 6 : 2), 0, strict);
+        }
+
+        int promotion = 0;
+        int eq = s.indexOf('=');
+        if (eq >= 0) {
+            if (eq + 1 >= s.length()) return 0;
+            promotion = PIECES.indexOf(Character.toUpperCase(s.charAt(eq + 1)));
+            if (strict && (promotion == Bitboards.PAWN || promotion == Bitboards.KING)) return 0;
+            s = s.substring(0, eq);
+        } else if (s.length() > 2 && "NBRQ".indexOf(s.charAt(s.length() - 1)) >= 0
+                && Character.isDigit(s.charAt(s.length() - 2))) {
+            promotion = PIECES.indexOf(s.charAt(s.length() - 1));
+            s = s.substring(0, s.length() - 1);
+        }
+        if (promotion < 0 || s.length() < 2) return 0;
+
+        int type = Bitboards.PAWN;
+        int start = 0;
+        if (PIECES.indexOf(s.charAt(0)) > 0) {
+            type = PIECES.indexOf(s.charAt(0));
+            start = 1;
+        }
+        int to = square(s.charAt(s.length() - 2), s.charAt(s.length() - 1));
+        if (to < 0) return 0;
+
+        int fromCol = -1, fromRow = -1;
+        for (int i = start; i < s.length() - 2; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'h') fromCol = c - 'a';
+            else if (c >= '1' && c <= '8') fromRow = '8' - c;
+            else if (c != 'x' && c != '-' && c != ':') return 0;
+        }
+        int move = find(position, buffer, type, fromRow, fromCol, to, promotion, strict);
+        if (strict && Move.isCastling(move)) return 0; // Written as a king move
+        return move;
+    }
+
+    /**
+     * Writes a legal move in SAN, with the file or rank of its origin where another
+     * piece of the same kind could go to the same square, and "+" or "#" after
+     * checks and mates.
+     * @param position position the move is played in; restored before returning
+     * @param move packed legal move
+     * @return the move in SAN
+     */
+    public static String toSan(Position position, int move) {
+        int from = Move.from(move), to = Move.to(move);
+        int type = Position.typeOf(position.pieceAt(from));
+        StringBuilder san = new StringBuilder(8);
+        if (Move.isCastling(move)) {
+            san.append(Bitboards.col(to) == 6 ? "O-O" : "O-O-O");
+        } else if (type == Bitboards.PAWN) {
+            if (Move.isCapture(move)) san.append((char) ('a' + Bitboards.col(from))).append('x');
+            san.append(Bitboards.squareName(to));
+            if (Move.isPromotion(move)) san.append('=').append(PIECES.charAt(Move.promotion(move)));
+        } else {
+            san.append(PIECES.charAt(type));
+            boolean ambiguous = false, sameCol = false, sameRow = false;
+            int[] moves = new int[Position.MAX_MOVES];
+            int count = position.generateLegalMoves(moves, 0);
+            for (int i = 0; i < count; i++) {
+                int other = Move.from(moves[i]);
+                if (other == from || Move.to(moves[i]) != to || Position.typeOf(position.pieceAt(other)) != type) continue;
+                ambiguous = true;
+                sameCol |= Bitboards.col(other) == Bitboards.col(from);
+                sameRow |= Bitboards.row(other) == Bitboards.row(from);
+            }
+            if (ambiguous && (!sameCol || sameRow)) san.append((char) ('a' + Bitboards.col(from)));
+            if (ambiguous && sameCol) san.append((char) ('8' - Bitboards.row(from)));
+            if (Move.isCapture(move)) san.append('x');
+            san.append(Bitboards.squareName(to));
+        }
+        if (position.givesCheck(move)) {
+            position.makeMove(move);
+            san.append(position.hasNoLegalMoves(position.isWhiteToMove()) ? '#' : '+');
+            position.unmakeMove();
+        }
+        return san.toString();
+    }
+
+    /**
+     * Returns the first legal move of a piece type to a square that matches the
+     * given origin row and column and promotion, or 0. In strict mode, returns 0
+     * if more than one move matches, if a promotion has no piece given, or if a
+     * piece is given for a move that does not promote.
+     */
+    private static int find(Position position, int[] moves, int type, int fromRow, int fromCol, int to, int promotion,
+                            boolean strict) {
+        int count = position.generateLegalMoves(moves, 0);
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Position.typeOf(position.pieceAt(from)) != type) continue;
+            if (fromRow >= 0 && Bitboards.row(from) != fromRow) continue;
+            if (fromCol >= 0 && Bitboards.col(from) != fromCol) continue;
+            if (Move.isPromotion(move) && Move.promotion(move) != (promotion == 0 ? Bitboards.QUEEN : promotion)) continue;
+            if (!strict) return move;
+            if (found != 0 || Move.isPromotion(move) != (promotion != 0)) return 0;
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Returns the square of a file letter and rank digit, or -1.
+     */
+    private static int square(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') return -1;
+        return Bitboards.square('8' - rank, file - 'a');
+    }
+}
@@ -1,60 +1,124 @@
-import javax.swing.*;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 /**
- * Utility class to save and display game history statistics.
+ * Utility class to save finished games to the {@link GameStore} and read back
+ * the history and statistics.
  */
 public class SaveGame {
 
-    private static final String HISTORY_FILE = "history.txt";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
 
     /**
-     * Saves the game result, duration, and moves to the history file.
-     * @param result the game result string (e.g., "White wins", "Draw")
-     * @param gameLog the GameLog instance containing moves notation
+     * Builds the stored form of a finished game.
+     * Reads the moves and the clock, so it runs on the event thread.
+     * @param result the game result string
+     * @param moves the moves played, from {@link GameController#getPlayedMoves()}
+     * @return the game to store
      */
-    public static void saveToHistory(String result, GameLog gameLog) {
-        try (FileWriter writer = new FileWriter(HISTORY_FILE, true)) {
-            writer.write("=== Game " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + " ===\n");
-            writer.write("Result: " + result + "\n");
-            writer.write("Duration: " + Timer.getFormattedTime() + "\n");
-            writer.write("Moves:\n" + gameLog.getAllMoves() + "\n\n");
+    public static StoredGame finishedGame(String result, int[] moves) {
+        return new StoredGame(System.currentTimeMillis(), StoredGame.resultOf(result),
+                (int) Math.min(Integer.MAX_VALUE, Timer.getElapsedMillis()), StoredGame.encodeMoves(moves));
+    }
+
+    /**
+     * Saves a finished game, adds its positions to the {@link PositionIndex} and
+     * reads back the overall score. Only does file I/O, so it can run off the event
+     * thread.
+     * @param game game from {@link #finishedGame}
+     * @return the score message, or an error message if the history could not be written or read
+     */
+    public static String saveAndScore(StoredGame game) {
+        try (GameStore store = GameStore.open()) {
+            int id;
+            try {
+                id = store.append(game);
+            } catch (IOException e) {
+                return "Failed to save game history.";
+            }
+            try {
+                PositionIndex.recordGame(id, game, PositionIndex.INDEX_FILE, PositionIndex.LOG_FILE);
+            } catch (IOException e) {
+                // The index catches up the next time a position is searched
+            }
+            return scoreMessage(GameStatistics.recordGame(store, game, GameStatistics.STATS_FILE));
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Failed to save game history.");
+            return "Cannot load history for statistics.";
         }
     }
 
     /**
-     * Displays overall statistics based on saved game history,
-     * showing number of White wins, Black wins, and Draws.
+     * Builds the overall score message: White wins, Black wins and draws.
+     * @param stats statistics of all stored games
+     * @return the overall score message
      */
-    public static void showStatsAfterGame() {
-        int whiteWins = 0, blackWins = 0, draws = 0;
-
-        try {
-            String content = Files.readString(Paths.get(HISTORY_FILE));
-            String[] games = content.split("=== Game ");
+    private static String scoreMessage(GameStatistics stats) {
+        return "📊 Overall score:\n"
+                + "White wins: " + stats.getResultCount(StoredGame.WHITE_WINS) + "\n"
+                + "Black wins: " + stats.getResultCount(StoredGame.BLACK_WINS) + "\n"
+                + "Draws: " + stats.getResultCount(StoredGame.DRAW);
+    }
 
-            for (String game : games) {
-                if (game.contains("Result: White wins")) whiteWins++;
-                else if (game.contains("Result: Black wins")) blackWins++;
-                else if (game.contains("Result: Draw")) draws++;
+    /**
+     * Writes a stored game as text in the layout of the old history file:
+     * date, result, duration and the moves in the notation of the game log.
+     * @param game the game
+     * @return the text, ending with a blank line
+     */
+    public static String formatGame(StoredGame game) {
+        StringBuilder text = new StringBuilder()
+                .append("=== Game ").append(DATE_FORMAT.format(Instant.ofEpochMilli(game.timestamp()))).append(" ===\n")
+                .append("Result: ").append(game.resultName()).append('\n')
+                .append("Duration: ").append(formatDuration(game.durationMillis())).append('\n')
+                .append("Moves:\n");
+        Position position = Position.fromFen(Position.START_FEN);
+        for (int i = 0; i < game.plies(); i++) {
+            int move = StoredGame.decodeMove(position, game.moves()[i]);
+            int from = Move.from(move), to = Move.to(move);
+            String piece = Position.pieceToString(position.pieceAt(from));
+            String captured = Move.isCapture(move) ? "x" : null;
+            position.makeMove(move);
+            String notation = GameLog.buildNotation(Bitboards.row(from), Bitboards.col(from), Bitboards.row(to),
+                    Bitboards.col(to), piece, captured, position.isKingInCheck(position.isWhiteToMove()));
+            if (i % 2 == 0) {
+                if (i > 0) text.append('\n');
+                text.append(i / 2 + 1).append(". ");
+            } else {
+                text.append(" , ");
             }
+            text.append(notation);
+        }
+        return text.append("\n\n").toString();
+    }
 
-            String message = "📊 Overall score:\n"
-                    + "White wins: " + whiteWins + "\n"
-                    + "Black wins: " + blackWins + "\n"
-                    + "Draws: " + draws;
-
-            JOptionPane.showMessageDialog(null, message, "Score", JOptionPane.INFORMATION_MESSAGE);
+    /**
+     * Formats milliseconds as "HH:mm:ss:SSS".
+     * @param ms milliseconds to format
+     * @return formatted time string
+     */
+    public static String formatDuration(long ms) {
+        return String.format("%02d:%02d:%02d:%03d", ms / 3_600_000, (ms / 60_000) % 60, (ms / 1_000) % 60, ms % 1_000);
+    }
 
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Cannot load history for statistics.");
+    /**
+     * Parses a duration string formatted as "HH:mm:ss:SSS" into milliseconds.
+     * @param text the duration string
+     * @return the duration in milliseconds, or 0 if it cannot be read
+     */
+    public static long parseDuration(String text) {
+        String[] p = text.split(":");
+        if (p.length != 4) return 0;
+        try {
+            long h = Long.parseLong(p[0]);
+            long m = Long.parseLong(p[1]);
+            long s = Long.parseLong(p[2]);
+            long ms = Long.parseLong(p[3]);
+            return h * 3_600_000 + m * 60_000 + s * 1_000 + ms;
+        } catch (NumberFormatException e) {
+            return 0;
         }
     }
 }
@@ -0,0 +1,469 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Game tree search for the computer opponent.
+ * Iterative deepening over a principal variation (alpha-beta) search, with a
+ * quiescence search on captures at the leaves. Results are kept in a
+ * {@link TranspositionTable}, which cuts off positions already searched deeply
+ * enough and supplies the best move to try first. After that, moves are ordered
+ * by MVV-LVA for captures, then killer moves and the history table for quiet moves.
+ * The search stops when its time budget runs out and returns the best move of the
+ * last completed iteration.
+ *
+ * With more than one thread the search is Lazy SMP: helper threads run the same
+ * iterative deepening on their own copies of the position, sharing only the
+ * transposition table, and skip depths in a staggered pattern so they spread
+ * over different iterations. The main thread's result is the one returned, with
+ * the nodes of all threads added up. With one thread the search is deterministic.
+ *
+ * Usage: java Search [fen|startpos] [--depth N] [--time ms] [--hash MB] [--threads N]
+ */
+public final class Search {
+
+    public static final int INFINITY = 32000;
+    /** Score of being mated at the root; mates further away score closer to zero. */
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 64;
+
+    /** How often (in nodes) the clock is read. */
+    private static final int TIME_CHECK_MASK = 2047;
+
+    private static final int HASH_MOVE_SCORE = 3_000_000;
+    private static final int CAPTURE_SCORE = 2_000_000;
+    private static final int KILLER_SCORE = 1_000_000;
+    private static final int HISTORY_LIMIT = 500_000;
+
+    /** Depth skipping pattern of the helper threads: helper i skips a depth d when ((d + phase) / size) is odd. */
+    private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+    private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+    private final Position position;
+    private final TranspositionTable table;
+    private final int[][] moves = new int[MAX_PLY][Position.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY][Position.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY][2];
+    /** Cut-off counts of quiet moves, indexed by [piece][target square]. */
+    private final int[][] history = new int[12][64];
+
+    private Consumer<Result> listener;
+    private int threads = 1;
+    private long nodes;
+    /** Node count as last published for other threads to read. */
+    private volatile long publishedNodes;
+    private long deadline;
+    private boolean canStop;
+    private volatile boolean stopped;
+    private int rootBest;
+
+    /**
+     * Creates a search on the given position with a small table of its own.
+     * @param position position to search
+     */
+    public Search(Position position) {
+        this(position, new TranspositionTable(1));
+    }
+
+    /**
+     * Creates a search on the given position. The position is played on in place
+     * and is back in its original state when {@link #search(int, long)} returns.
+     * @param position position to search
+     * @param table transposition table, which may be shared with other searches
+     */
+    public Search(Position position, TranspositionTable table) {
+        this.position = position;
+        this.table = table;
+    }
+
+    /**
+     * Command-line entry point. Prints one line per completed iteration.
+     *
+     * @param args FEN or "startpos", and optional --depth N / --time ms / --hash MB / --threads N
+     */
+    public static void main(String[] args) {
+        String fen = Position.START_FEN;
+        int depth = MAX_PLY;
+        long time = 5000;
+        int hashMb = TranspositionTable.DEFAULT_SIZE_MB;
+        int threads = 1;
+
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth" -> {
+                    depth = Integer.parseInt(args[++i]);
+                    time = 0;
+                }
+                case "--time" -> time = Long.parseLong(args[++i]);
+                case "--hash" -> hashMb = Integer.parseInt(args[++i]);
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+        String joined = String.join(" ", positional);
+        if (!joined.isEmpty() && !joined.equals("startpos")) fen = joined;
+
+        Search search = new Search(Position.fromFen(fen), new TranspositionTable(hashMb));
+        search.setThreads(threads);
+        search.setListener(r -> System.out.printf("depth %d score %d nodes %d time %d ms nps %d move %s%n",
+                r.getDepth(), r.getScore(), r.getNodes(), r.getElapsedNanos() / 1_000_000,
+                r.getNodesPerSecond(), Move.toString(r.getMove())));
+        Result result = search.search(depth, time);
+        System.out.println("bestmove " + (result.getMove() == 0 ? "(none)" : Move.toString(result.getMove())));
+    }
+
+    /**
+     * Sets a callback run on the searching thread after every completed iteration.
+     * @param listener receives the result of each iteration
+     */
+    public void setListener(Consumer<Result> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the number of threads, the calling thread included.
+     * @param threads thread count, at least 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. Safe to call from any thread.
+     * A stop requested before the search starts is kept, and that search returns at
+     * once with a legal move; the request is cleared when a search returns.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Searches the position by iterative deepening.
+     * @param maxDepth deepest iteration to run
+     * @param timeMillis time budget in milliseconds, or 0 for no limit
+     * @return best move of the last completed iteration; move 0 if there is no legal move
+     */
+    public Result search(int maxDepth, long timeMillis) {
+        long start = System.nanoTime();
+        deadline = timeMillis > 0 ? start + timeMillis * 1_000_000 : Long.MAX_VALUE;
+        reset();
+        table.newSearch();
+
+        int rootCount = position.generateLegalMoves(moves[0], 0);
+        if (rootCount == 0) return new Result(0, position.isKingInCheck(position.isWhiteToMove()) ? -MATE : 0, 0, 0, 0);
+        rootBest = moves[0][0];
+
+        Search[] helpers = new Search[threads - 1];
+        Thread[] workers = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = new Search(position.copy(), table);
+            helper.reset();
+            helper.deadline = Long.MAX_VALUE;
+            int id = i;
+            helpers[i] = helper;
+            workers[i] = new Thread(() -> helper.helperLoop(id, maxDepth), "search-helper-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        Result result = null;
+        try {
+            boolean inCheck = position.isKingInCheck(position.isWhiteToMove());
+            for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+                int score = alphaBeta(depth, 0, -INFINITY, INFINITY, inCheck);
+                // The root searches the previous best move first, so rootBest is still sound after a stop.
+                if (stopped && result != null) {
+                    result = new Result(rootBest, result.score, result.depth, totalNodes(helpers), System.nanoTime() - start);
+                    break;
+                }
+                result = new Result(rootBest, score, depth, totalNodes(helpers), System.nanoTime() - start);
+                canStop = true;
+                if (listener != null) listener.accept(result);
+                if (stopped || Math.abs(score) >= MATE - MAX_PLY) break;
+                // The next iteration takes several times as long; do not start one that cannot finish.
+                if (timeMillis > 0 && System.nanoTime() - start > timeMillis * 500_000) break;
+            }
+        } finally {
+            stopped = false; // Ready for the next search
+            for (Search helper : helpers) helper.stop();
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        // After the joins every helper's own count is visible and final.
+        long total = nodes;
+        for (Search helper : helpers) total += helper.nodes;
+        if (result == null) return new Result(rootBest, 0, 0, total, System.nanoTime() - start);
+        return new Result(result.move, result.score, result.depth, total, System.nanoTime() - start);
+    }
+
+    /**
+     * Clears the per-search state, before any helper thread runs. The stop flag is
+     * left alone, so a stop requested before the search began is not lost.
+     */
+    private void reset() {
+        nodes = 0;
+        publishedNodes = 0;
+        canStop = false;
+        rootBest = 0;
+        for (int[] k : killers) Arrays.fill(k, 0);
+        for (int[] h : history) Arrays.fill(h, 0);
+    }
+
+    /**
+     * Iterative deepening of a helper thread. Runs until stopped by the main thread,
+     * skipping depths according to the helper's row of the skip tables; the results
+     * reach the main thread only through the transposition table.
+     */
+    private void helperLoop(int id, int maxDepth) {
+        int size = SKIP_SIZE[id % SKIP_SIZE.length];
+        int phase = SKIP_PHASE[id % SKIP_PHASE.length];
+        position.generateLegalMoves(moves[0], 0);
+        rootBest = moves[0][0];
+        boolean inCheck = position.isKingInCheck(position.isWhiteToMove());
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_PLY - 1) && !stopped; depth++) {
+            if (((depth + phase) / size) % 2 != 0) continue;
+            alphaBeta(depth, 0, -INFINITY, INFINITY, inCheck);
+        }
+    }
+
+    /**
+     * Returns the nodes searched so far by this thread and the helpers.
+     */
+    private long totalNodes(Search[] helpers) {
+        long total = nodes;
+        for (Search helper : helpers) total += helper.publishedNodes;
+        return total;
+    }
+
+    /**
+     * Principal variation search. The first move gets the full window; the others
+     * are searched with a null window and re-searched only if they beat alpha.
+     * @param inCheck true if the side to move is in check, as reported by the parent's move
+     * @return score from the side to move's point of view
+     */
+    private int alphaBeta(int depth, int ply, int alpha, int beta, boolean inCheck) {
+        if (ply > 0 && (position.getHalfmoveClock() >= 100 || position.isRepetition())) return 0;
+        if (inCheck) depth++; // Check extension: never stand pat while in check
+        if (depth <= 0) return quiescence(ply, alpha, beta);
+        if (ply >= MAX_PLY - 1) return Evaluation.evaluate(position);
+        countNode();
+
+        long key = position.getKey();
+        long entry = table.probe(key);
+        int hashMove = ply == 0 ? rootBest : TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER && score <= alpha)) return score;
+        }
+
+        int[] list = moves[ply];
+        int count = position.generateLegalMoves(list, 0);
+        if (count == 0) return inCheck ? -MATE + ply : 0;
+        scoreMoves(list, scores[ply], count, hashMove, ply);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, scores[ply], i, count);
+            int piece = position.pieceAt(Move.from(move));
+            boolean givesCheck = position.givesCheck(move);
+            position.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, givesCheck);
+            } else {
+                score = -alphaBeta(depth - 1, ply + 1, -alpha - 1, -alpha, givesCheck);
+                if (score > alpha && score < beta)
+                    score = -alphaBeta(depth - 1, ply + 1, -beta, -alpha, givesCheck);
+            }
+            position.unmakeMove();
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (ply == 0) rootBest = move;
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) rememberQuietCutoff(move, piece, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bound == TranspositionTable.UPPER ? 0 : bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Converts a mate score from distance-to-root to distance-to-this-node, so a
+     * stored mate stays correct when the position is reached at another ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    /**
+     * Converts a stored mate score back to distance-to-root.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    /**
+     * Searches captures only until the position is quiet, so the static
+     * evaluation is never taken in the middle of an exchange.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        countNode();
+        int standPat = Evaluation.evaluate(position);
+        if (ply >= MAX_PLY - 1 || standPat >= beta) return standPat;
+        if (standPat > alpha) alpha = standPat;
+
+        int[] list = moves[ply];
+        int count = position.generateLegalCaptures(list, 0);
+        scoreMoves(list, scores[ply], count, 0, ply);
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, scores[ply], i, count);
+            position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) return 0;
+            if (score > alpha) {
+                if (score >= beta) return score;
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Counts a node, and every few thousand nodes publishes the count and reads the clock.
+     * The first iteration always completes so there is a move to play.
+     */
+    private void countNode() {
+        if ((++nodes & TIME_CHECK_MASK) == 0) {
+            publishedNodes = nodes;
+            if (canStop && System.nanoTime() > deadline) stopped = true;
+        }
+    }
+
+    /**
+     * Gives every move an ordering score: the hash move, then captures by
+     * MVV-LVA (most valuable victim, least valuable attacker), then killers,
+     * then quiet moves by history.
+     */
+    private void scoreMoves(int[] list, int[] score, int count, int hashMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int attacker = Position.typeOf(position.pieceAt(Move.from(move)));
+            if (move == hashMove) {
+                score[i] = HASH_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                int victim = Move.isEnPassant(move) ? Bitboards.PAWN : position.pieceAt(Move.to(move));
+                int gain = victim == Position.EMPTY ? 0 : Evaluation.VALUES[Position.typeOf(victim)];
+                if (Move.isPromotion(move)) gain += Evaluation.VALUES[Move.promotion(move)];
+                score[i] = CAPTURE_SCORE + gain * 8 - attacker;
+            } else if (move == killers[ply][0]) {
+                score[i] = KILLER_SCORE + 1;
+            } else if (move == killers[ply][1]) {
+                score[i] = KILLER_SCORE;
+            } else {
+                score[i] = history[position.pieceAt(Move.from(move))][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * Swaps the highest scored remaining move into place and returns it.
+     */
+    private static int pickNext(int[] list, int[] score, int index, int count) {
+        int best = index;
+        for (int j = index + 1; j < count; j++)
+            if (score[j] > score[best]) best = j;
+        int move = list[best];
+        list[best] = list[index];
+        list[index] = move;
+        int s = score[best];
+        score[best] = score[index];
+        score[index] = s;
+        return move;
+    }
+
+    /**
+     * Records a quiet move that caused a beta cut-off as a killer for its ply
+     * and bumps its history score.
+     */
+    private void rememberQuietCutoff(int move, int piece, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        history[piece][Move.to(move)] += depth * depth;
+        if (history[piece][Move.to(move)] > HISTORY_LIMIT)
+            for (int[] h : history)
+                for (int sq = 0; sq < 64; sq++) h[sq] /= 2;
+    }
+
+    /**
+     * Outcome of a search: the move to play and how the search got there.
+     */
+    public static class Result {
+        final int move;
+        final int score;
+        final int depth;
+        final long nodes;
+        final long elapsedNanos;
+
+        Result(int move, int score, int depth, long nodes, long elapsedNanos) {
+            this.move = move;
+            this.score = score;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getMove() {
+            return move;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos > 0 ? nodes * 1_000_000_000L / elapsedNanos : 0;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the computer opponent's search.
+ */
+public class SearchTests {
+
+    /**
+     * Tests that a mate in one is found and scored as mate.
+     */
+    @Test
+    void testFindsMateInOne() {
+        // Scholar's mate: Qxf7#
+        Position p = Position.fromFen("r1bqkbnr/pppp1ppp/2n5/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+        Search.Result result = new Search(p).search(4, 0);
+        assertEquals("h5f7", Move.toString(result.getMove()));
+        assertEquals(Search.MATE - 1, result.getScore());
+    }
+
+    /**
+     * Tests that an undefended queen is captured.
+     */
+    @Test
+    void testCapturesHangingQueen() {
+        Position p = Position.fromFen("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        Search.Result result = new Search(p).search(3, 0);
+        assertEquals("d2d5", Move.toString(result.getMove()));
+    }
+
+    /**
+     * Tests that a stop requested before the search starts is not lost, and that
+     * the next search on the same object runs normally.
+     */
+    @Test
+    void testStopBeforeSearchStarts() {
+        Position p = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        Search search = new Search(p);
+        search.stop();
+        Search.Result stopped = search.search(Search.MAX_PLY, 0);
+        assertEquals(1, stopped.getDepth());
+        assertNotEquals(0, stopped.getMove());
+        assertEquals(3, search.search(3, 0).getDepth());
+    }
+
+    /**
+     * Tests that the search leaves the position as it found it.
+     */
+    @Test
+    void testSearchRestoresPosition() {
+        Position p = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        long key = p.getKey();
+        new Search(p).search(4, 0);
+        assertEquals(key, p.getKey());
+        assertEquals(0, p.undoDepth());
+    }
+
+    /**
+     * Tests that a single-threaded search is reproducible node for node.
+     */
+    @Test
+    void testSingleThreadIsDeterministic() {
+        String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+        Search.Result first = new Search(Position.fromFen(fen)).search(5, 0);
+        Search.Result second = new Search(Position.fromFen(fen)).search(5, 0);
+        assertEquals(first.getMove(), second.getMove());
+        assertEquals(first.getScore(), second.getScore());
+        assertEquals(first.getNodes(), second.getNodes());
+    }
+
+    /**
+     * Tests that helper threads share the work and the mate is still found.
+     */
+    @Test
+    void testLazySmpFindsMate() {
+        Position p = Position.fromFen("r1bqkbnr/pppp1ppp/2n5/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w KQkq - 4 4");
+        long key = p.getKey();
+        Search search = new Search(p);
+        search.setThreads(4);
+        Search.Result result = search.search(4, 0);
+        assertEquals("h5f7", Move.toString(result.getMove()));
+        assertEquals(key, p.getKey());
+    }
+
+    /**
+     * Tests that stored entries read back, that a shallower result for another
+     * position does not replace a deeper one, and that clearing empties the table.
+     */
+    @Test
+    void testTranspositionTableStoreProbeAndReplace() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(52, 36, 0, Move.DOUBLE_PUSH);
+        table.store(42L, move, -1234, 7, TranspositionTable.LOWER);
+
+        long entry = table.probe(42L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(43L));
+
+        long sameSlot = 42L + table.capacity();
+        table.store(sameSlot, 0, 5, 3, TranspositionTable.EXACT);
+        assertEquals(7, TranspositionTable.depth(table.probe(42L)));
+        assertEquals(0L, table.probe(sameSlot));
+
+        table.newSearch();
+        table.store(sameSlot, 0, 5, 3, TranspositionTable.EXACT);
+        assertEquals(5, TranspositionTable.score(table.probe(sameSlot)));
+
+        table.clear();
+        assertEquals(0L, table.probe(sameSlot));
+    }
+
+    /**
+     * Tests that a position without legal moves returns no move.
+     */
+    @Test
+    void testNoMoveWhenMated() {
+        Position p = Position.fromFen("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        Search.Result result = new Search(p).search(3, 0);
+        assertEquals(0, result.getMove());
+        assertEquals(-Search.MATE, result.getScore());
+    }
+}
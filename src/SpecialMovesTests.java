@@ -75,4 +75,113 @@ public class SpecialMovesTests {
         DrawRules.recordPosition(board, true);
         assertTrue(DrawRules.isThreefoldRepetition(board, true));
     }
+
+    /**
+     * Tests that the Zobrist key depends only on the position, not on the move order,
+     * and that unmaking moves restores it.
+     */
+    @Test
+    void testZobristKeyTranspositionAndUnmake() {
+        Position a = Position.fromFen(Position.START_FEN);
+        Position b = Position.fromFen(Position.START_FEN);
+        long start = a.getKey();
+
+        // 1. Nf3 Nf6 2. Nc3 versus 1. Nc3 Nf6 2. Nf3
+        a.makeMove(Bitboards.square(7, 6), Bitboards.square(5, 5), Bitboards.QUEEN);
+        a.makeMove(Bitboards.square(0, 6), Bitboards.square(2, 5), Bitboards.QUEEN);
+        a.makeMove(Bitboards.square(7, 1), Bitboards.square(5, 2), Bitboards.QUEEN);
+        b.makeMove(Bitboards.square(7, 1), Bitboards.square(5, 2), Bitboards.QUEEN);
+        b.makeMove(Bitboards.square(0, 6), Bitboards.square(2, 5), Bitboards.QUEEN);
+        b.makeMove(Bitboards.square(7, 6), Bitboards.square(5, 5), Bitboards.QUEEN);
+        assertEquals(a.getKey(), b.getKey());
+
+        a.unmakeMove();
+        a.unmakeMove();
+        a.unmakeMove();
+        assertEquals(start, a.getKey());
+    }
+
+    /**
+     * Tests that a copy with recent history keeps only the moves since the last
+     * pawn move, and still sees a repetition among them.
+     */
+    @Test
+    void testCopyWithRecentHistoryKeepsRepetitions() {
+        Position p = Position.fromFen(Position.START_FEN);
+        p.makeMove(Bitboards.square(6, 4), Bitboards.square(4, 4), Bitboards.QUEEN); // e4
+        p.makeMove(Bitboards.square(1, 4), Bitboards.square(3, 4), Bitboards.QUEEN); // e5
+        for (int i = 0; i < 2; i++) {
+            p.makeMove(Bitboards.square(7, 6), Bitboards.square(5, 5), Bitboards.QUEEN); // Nf3
+            p.makeMove(Bitboards.square(0, 6), Bitboards.square(2, 5), Bitboards.QUEEN); // Nf6
+            p.makeMove(Bitboards.square(5, 5), Bitboards.square(7, 6), Bitboards.QUEEN); // Ng1
+            p.makeMove(Bitboards.square(2, 5), Bitboards.square(0, 6), Bitboards.QUEEN); // Ng8
+        }
+        Position copy = p.copyWithRecentHistory();
+        assertEquals(8, copy.undoDepth());
+        assertEquals(p.getKey(), copy.getKey());
+        assertTrue(copy.isRepetition());
+        copy.unmakeMove();
+        assertTrue(copy.isRepetition());
+        assertFalse(p.copyWithoutHistory().isRepetition());
+    }
+
+    /**
+     * Tests that givesCheck finds discovered checks, checks by the castling rook
+     * and checks made by en passant captures, and agrees with playing every legal
+     * move and looking for the check.
+     */
+    @Test
+    void testGivesCheckSpecialMoves() {
+        // Any knight move uncovers the rook on e1
+        Position discovered = Position.fromFen("4k3/8/8/8/4N3/8/8/4R1K1 w - - 0 1");
+        assertTrue(discovered.givesCheck(discovered.toMove(square("e4"), square("c5"), Bitboards.QUEEN)));
+        // The rook lands on f1, facing the king on f8
+        Position castling = Position.fromFen("5k2/8/8/8/8/8/8/4K2R w K - 0 1");
+        int castle = castling.toMove(square("e1"), square("g1"), Bitboards.QUEEN);
+        assertTrue(Move.isCastling(castle));
+        assertTrue(castling.givesCheck(castle));
+        // Both pawns leave the fifth rank, opening it for the rook
+        Position enPassant = Position.fromFen("8/8/8/k1pP3R/8/8/8/4K3 w - c6 0 1");
+        int capture = enPassant.toMove(square("d5"), square("c6"), Bitboards.QUEEN);
+        assertTrue(Move.isEnPassant(capture));
+        assertTrue(enPassant.givesCheck(capture));
+        // The capturing pawn itself attacks the king
+        Position pawnCheck = Position.fromFen("8/2k5/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        assertTrue(pawnCheck.givesCheck(pawnCheck.toMove(square("e5"), square("d6"), Bitboards.QUEEN)));
+        assertFalse(pawnCheck.givesCheck(pawnCheck.toMove(square("e5"), square("e6"), Bitboards.QUEEN)));
+
+        for (Position p : new Position[]{discovered, castling, enPassant, pawnCheck,
+                Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"),
+                Position.fromFen("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1")}) {
+            int[] moves = new int[Position.MAX_MOVES];
+            int count = p.generateLegalMoves(moves, 0);
+            for (int i = 0; i < count; i++) {
+                boolean expected;
+                p.makeMove(moves[i]);
+                expected = p.isKingInCheck(p.isWhiteToMove());
+                p.unmakeMove();
+                assertEquals(expected, p.givesCheck(moves[i]), Move.toString(moves[i]));
+            }
+        }
+    }
+
+    private static int square(String name) {
+        return Bitboards.square('8' - name.charAt(1), name.charAt(0) - 'a');
+    }
+
+    /**
+     * Tests that the legal move index groups the same moves the generator finds
+     * and that a position seen again is served from the cache.
+     */
+    @Test
+    void testLegalMoveIndexMatchesGenerator() {
+        Position p = Position.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        LegalMoveIndex index = LegalMoveIndex.of(p);
+        assertEquals(48, index.size());
+        for (int s = 0; s < 64; s++) {
+            assertEquals(p.legalTargets(s), index.targets(s));
+            for (int i = index.start(s); i < index.end(s); i++) assertEquals(s, Move.from(index.move(i)));
+        }
+        assertSame(index, LegalMoveIndex.of(p.copy()));
+    }
 }
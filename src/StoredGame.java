@@ -0,0 +1,78 @@
+/**
+ * A finished game as kept in the {@link GameStore}: when it ended, its result,
+ * how long it took and its moves. Moves are 16-bit codes, the origin square,
+ * target square and promotion piece of a packed {@link Move} without its flags;
+ * the flags are filled in again by replaying the game from the start position.
+ *
+ * @param timestamp end of the game in milliseconds since the epoch
+ * @param result one of {@link #WHITE_WINS}, {@link #BLACK_WINS}, {@link #DRAW} or {@link #UNKNOWN}
+ * @param durationMillis length of the game in milliseconds
+ * @param moves move codes from {@link #encodeMove(int)}, in the order played
+ */
+public record StoredGame(long timestamp, int result, int durationMillis, short[] moves) {
+
+    public static final int WHITE_WINS = 0;
+    public static final int BLACK_WINS = 1;
+    public static final int DRAW = 2;
+    public static final int UNKNOWN = 3;
+
+    private static final String[] RESULT_NAMES = {"White wins", "Black wins", "Draw", "Unknown"};
+
+    /**
+     * Returns the number of half-moves played.
+     */
+    public int plies() {
+        return moves.length;
+    }
+
+    /**
+     * Returns the result as shown to the players, e.g. "White wins".
+     */
+    public String resultName() {
+        return resultName(result);
+    }
+
+    /**
+     * Returns the name of a result code, e.g. "White wins".
+     */
+    public static String resultName(int result) {
+        return RESULT_NAMES[result];
+    }
+
+    /**
+     * Returns the result code of a result string such as "White wins" or "Draw".
+     * @param name the result as fired with {@link GameEvent.GameEnded}
+     * @return the result code, or {@link #UNKNOWN} if the name is not known
+     */
+    public static int resultOf(String name) {
+        for (int i = 0; i < UNKNOWN; i++) if (RESULT_NAMES[i].equalsIgnoreCase(name.trim())) return i;
+        return UNKNOWN;
+    }
+
+    /**
+     * Packs a move into 16 bits: bits 0-5 origin, 6-11 target, 12-14 promotion type.
+     */
+    public static short encodeMove(int move) {
+        return (short) (move & 0x7FFF);
+    }
+
+    /**
+     * Packs a list of moves; see {@link #encodeMove(int)}.
+     */
+    public static short[] encodeMoves(int[] moves) {
+        short[] codes = new short[moves.length];
+        for (int i = 0; i < moves.length; i++) codes[i] = encodeMove(moves[i]);
+        return codes;
+    }
+
+    /**
+     * Unpacks a move code in the position it is played from.
+     * @param position position before the move
+     * @param code code from {@link #encodeMove(int)}
+     * @return the packed move with its flags
+     */
+    public static int decodeMove(Position position, short code) {
+        int promotion = Move.promotion(code);
+        return position.toMove(Move.from(code), Move.to(code), promotion == 0 ? Bitboards.QUEEN : promotion);
+    }
+}
@@ -5,7 +5,7 @@ import java.awt.*;
  * A panel that displays an elapsed timer using Swing.
  * The timer starts immediately upon construction and updates every 50 milliseconds.
  */
-public class Timer extends JPanel {
+public class Timer extends JPanel implements GameListener {
 
     // Label for displaying the time
     private JLabel timeLabel;
@@ -33,6 +33,7 @@ public class Timer extends JPanel {
 
         // Set the start time and launch updates every 50 ms
         startTime = System.currentTimeMillis();
+        startTimeStatic = startTime;
         swingTimer = new javax.swing.Timer(50, e -> updateTime());
         swingTimer.start();
         instance = this;
@@ -61,6 +62,14 @@ public class Timer extends JPanel {
         swingTimer.stop();
     }
 
+    /**
+     * Stops the timer when the game ends.
+     */
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (event instanceof GameEvent.GameEnded) stop();
+    }
+
     /**
      * Static method to stop the current timer instance.
      */
@@ -82,8 +91,7 @@ public class Timer extends JPanel {
      * @return A string in format HH:mm:ss:SSS
      */
     public static String getFormattedTime() {
-        long now = System.currentTimeMillis();
-        long elapsed = now - startTimeStatic;
+        long elapsed = getElapsedMillis();
 
         long hours = elapsed / (1000 * 60 * 60);
         long minutes = (elapsed / (1000 * 60)) % 60;
@@ -93,6 +101,14 @@ public class Timer extends JPanel {
         return String.format("%02d:%02d:%02d:%03d", hours, minutes, seconds, millis);
     }
 
+    /**
+     * Returns the milliseconds elapsed since the current timer started.
+     * @return elapsed time in milliseconds
+     */
+    public static long getElapsedMillis() {
+        return System.currentTimeMillis() - startTimeStatic;
+    }
+
     // Static start time for use with getFormattedTime
     private static long startTimeStatic = System.currentTimeMillis();
 }
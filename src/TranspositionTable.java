@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size transposition table for the search.
+ * Every entry is two longs in one flat array: the position key XORed with the
+ * data word, and the data word itself. A reader accepts an entry only if the two
+ * words XOR back to its key, so threads can read and write without locks; an entry
+ * torn by a concurrent write simply reads as a miss.
+ *
+ * The data word packs, from the low bits: best move (20 bits), score (16 bits,
+ * signed), depth (8 bits), bound (2 bits) and the age of the search that stored it
+ * (6 bits). A slot is replaced by a deeper or equally deep result, by any result for
+ * the same position, or by anything once the old entry is from an earlier search.
+ */
+public final class TranspositionTable {
+
+    /** Score is exact. */
+    public static final int EXACT = 1;
+    /** Score is a lower bound (the search failed high). */
+    public static final int LOWER = 2;
+    /** Score is an upper bound (the search failed low). */
+    public static final int UPPER = 3;
+
+    public static final int DEFAULT_SIZE_MB = 16;
+
+    private static final int ENTRY_LONGS = 2;
+    private static final int BYTES_PER_ENTRY = ENTRY_LONGS * Long.BYTES;
+    /** Largest power of two whose entries still fit in one Java array. */
+    private static final long MAX_ENTRIES = 1L << 29;
+
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 36;
+    private static final int BOUND_SHIFT = 44;
+    private static final int AGE_SHIFT = 46;
+    private static final int AGE_MASK = 63;
+
+    private static TranspositionTable instance;
+
+    private long[] table;
+    private long mask;
+    private int age;
+
+    /**
+     * Creates a table using at most the given amount of memory.
+     * The entry count is rounded down to a power of two.
+     * @param sizeMb memory budget in megabytes
+     */
+    public TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Returns the table shared by the searches of the running game.
+     *
+     * @return the shared table
+     */
+    public static synchronized TranspositionTable getInstance() {
+        if (instance == null) instance = new TranspositionTable(DEFAULT_SIZE_MB);
+        return instance;
+    }
+
+    /**
+     * Reallocates the table with a new memory budget, dropping all entries.
+     * Must not be called while a search is using the table.
+     * @param sizeMb memory budget in megabytes
+     */
+    public void resize(int sizeMb) {
+        if (sizeMb < 1) throw new IllegalArgumentException("Table size must be at least 1 MB: " + sizeMb);
+        long entries = Math.min(Long.highestOneBit((long) sizeMb * 1024 * 1024 / BYTES_PER_ENTRY), MAX_ENTRIES);
+        table = new long[(int) entries * ENTRY_LONGS];
+        mask = table.length / ENTRY_LONGS - 1;
+        age = 0;
+    }
+
+    /**
+     * Returns the number of entries the table holds.
+     */
+    public int capacity() {
+        return table.length / ENTRY_LONGS;
+    }
+
+    /**
+     * Drops all entries.
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+        age = 0;
+    }
+
+    /**
+     * Starts a new search, so entries from earlier searches become replaceable
+     * while still being usable until they are overwritten.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * Looks up a position.
+     * @param key Zobrist key of the position
+     * @return the packed data word, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        int i = index(key);
+        long data = table[i + 1];
+        return (table[i] ^ data) == key ? data : 0L;
+    }
+
+    /**
+     * Stores a search result, subject to the replacement scheme.
+     * @param key Zobrist key of the position
+     * @param move best move found, or 0 if none
+     * @param score score, already adjusted to be independent of the distance from the root
+     * @param depth remaining depth the score was searched to
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int i = index(key);
+        long oldData = table[i + 1];
+        boolean samePosition = (table[i] ^ oldData) == key;
+        if (oldData != 0 && !samePosition && age(oldData) == age && depth < depth(oldData)) return;
+        if (move == 0 && samePosition) move = move(oldData); // Keep the best move we already know
+
+        long data = (move & 0xFFFFFL)
+                | (score & 0xFFFFL) << SCORE_SHIFT
+                | (long) (depth & 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) age << AGE_SHIFT;
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFFF);
+    }
+
+    public static int score(long data) {
+        return (short) (data >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & AGE_MASK);
+    }
+
+    private int index(long key) {
+        return (int) (key & mask) * ENTRY_LONGS;
+    }
+}
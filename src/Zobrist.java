@@ -0,0 +1,34 @@
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * A position key is the XOR of the keys of its pieces, the side to move,
+ * the castling rights and the en passant file.
+ */
+public final class Zobrist {
+
+    /** Keys indexed by [piece][square]. */
+    public static final long[][] PIECE_SQUARE = new long[12][64];
+    /** Key XORed in when black is to move. */
+    public static final long BLACK_TO_MOVE;
+    /** Keys indexed by the 4-bit castling rights. */
+    public static final long[] CASTLING = new long[16];
+    /** Keys indexed by the file of a capturable en passant square. */
+    public static final long[] EN_PASSANT_FILE = new long[8];
+
+    static {
+        // Fixed seed so keys are identical between runs and can be stored on disk.
+        SplittableRandom random = new SplittableRandom(0x5A0B2157L);
+        for (long[] squares : PIECE_SQUARE)
+            for (int sq = 0; sq < 64; sq++)
+                squares[sq] = random.nextLong();
+        BLACK_TO_MOVE = random.nextLong();
+        for (int i = 1; i < 16; i++)
+            CASTLING[i] = random.nextLong();
+        for (int f = 0; f < 8; f++)
+            EN_PASSANT_FILE[f] = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}